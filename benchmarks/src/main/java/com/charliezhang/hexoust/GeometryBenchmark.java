@@ -0,0 +1,78 @@
+package com.charliezhang.hexoust;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Layout transforms and neighbour lookup, one cell per call, cycling over every
+ * cell of the board so the working set grows with the radius.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+
+    @Param({"6", "12", "24"})
+    int radius;
+
+    private Layout layout;
+    private Board board;
+    private Point[] clicks;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        layout = new Layout(Layout.flat, new Point(25, 25), new Point(550, 384));
+        board = Board.hexagon(radius);
+        clicks = new Point[board.size()];
+        for (int cell = 0; cell < clicks.length; cell++) {
+            Point center = layout.hexToPixel(board.cube(cell));
+            clicks[cell] = new Point(center.x + 7, center.y - 5);
+        }
+    }
+
+    private int nextCell() {
+        int cell = next;
+        next = cell + 1 == clicks.length ? 0 : cell + 1;
+        return cell;
+    }
+
+    @Benchmark
+    public Point hexToPixel() {
+        return layout.hexToPixel(board.cube(nextCell()));
+    }
+
+    @Benchmark
+    public int pixelToHex() {
+        return board.indexOf(layout.pixelToHex(clicks[nextCell()]).hexRound());
+    }
+
+    @Benchmark
+    public ArrayList<Point> polygonCorners() {
+        return layout.polygonCorners(board.cube(nextCell()));
+    }
+
+    @Benchmark
+    public void neighborCells(Blackhole blackhole) {
+        int cell = nextCell();
+        for (int d = 0; d < Board.DIRECTIONS; d++) {
+            blackhole.consume(board.neighbor(cell, d));
+        }
+    }
+}
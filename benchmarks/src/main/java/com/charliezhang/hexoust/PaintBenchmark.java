@@ -0,0 +1,64 @@
+package com.charliezhang.hexoust;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full repaint of the game panel into an off-screen image, with half of
+ * the cells holding stones. The hex size shrinks with the radius so every
+ * board fits the default window.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+
+    @Param({"6", "12", "24"})
+    int radius;
+
+    private HexGrid panel;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setUp() {
+        double size = Math.min(25, 700 / (Math.sqrt(3) * (2 * radius + 1)));
+        Layout layout = new Layout(Layout.flat, new Point(size, size), new Point(400, 384));
+        Board board = Board.hexagon(radius);
+        panel = new HexGrid(layout, board);
+        panel.setSize(1100, 768);
+        for (int cell = 0; cell < board.size(); cell += 2) {
+            panel.state.place(cell, (cell & 2) == 0 ? GameState.RED : GameState.BLUE);
+        }
+        image = new BufferedImage(1100, 768, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paintComponent() {
+        panel.paintComponent(graphics);
+        return image;
+    }
+}
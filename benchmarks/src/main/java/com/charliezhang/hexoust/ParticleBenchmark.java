@@ -0,0 +1,61 @@
+package com.charliezhang.hexoust;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One frame of the win animation: a step and a draw of every particle into an
+ * off-screen image. Culled particles are respawned at the top every frame so
+ * the count stays at the parameter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ParticleBenchmark {
+
+    @Param({"500", "10000", "50000"})
+    int particles;
+
+    private ParticleSystem system;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setUp() {
+        system = new ParticleSystem(particles);
+        system.spawn(particles, 1100, 100);
+        image = new BufferedImage(1100, 768, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public int frame() {
+        system.step(1100, 768);
+        // Replace the culled particles so the count stays constant
+        system.spawn(particles - system.size(), 1100, 100);
+        system.draw(graphics, 1100, 768);
+        return system.size();
+    }
+}
@@ -0,0 +1,61 @@
+package com.charliezhang.hexoust;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random games from the empty board, as played by the MCTS player: each
+ * operation is one playout to the end of the game (or the same ply cap the
+ * player uses), followed by undoing it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayoutBenchmark {
+
+    @Param({"6", "12", "24"})
+    int radius;
+
+    private GameState state;
+    private int[] moves;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        state = new GameState(Board.hexagon(radius));
+        moves = new int[state.board().size()];
+        random = new SplittableRandom(radius);
+    }
+
+    @Benchmark
+    public int randomPlayout() {
+        int cap = 4 * moves.length;
+        for (int plies = 0; plies < cap; plies++) {
+            int count = state.legalMoves(moves);
+            if (count == 0) {
+                break;
+            }
+            state.play(moves[random.nextInt(count)]);
+        }
+        int winner = state.winner();
+        while (state.moveCount() > 0) {
+            state.undo();
+        }
+        return winner;
+    }
+}
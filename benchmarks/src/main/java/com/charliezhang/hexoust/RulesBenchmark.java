@@ -0,0 +1,88 @@
+package com.charliezhang.hexoust;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move generation and capture resolution on a dense board, where about 90% of
+ * the cells hold a stone and most placements join a large group.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesBenchmark {
+
+    @Param({"6", "12", "24"})
+    int radius;
+
+    private GameState state;
+    private int[] moves;
+    private int[] captures;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Board board = Board.hexagon(radius);
+        state = new GameState(board);
+        SplittableRandom random = new SplittableRandom(radius);
+        for (int cell = 0; cell < board.size(); cell++) {
+            int roll = random.nextInt(20);
+            if (roll < 9) {
+                state.place(cell, GameState.RED);
+            } else if (roll < 18) {
+                state.place(cell, GameState.BLUE);
+            }
+        }
+        moves = new int[board.size()];
+
+        // Red placements that join a red group, and so capture
+        int[] found = new int[board.size()];
+        int count = 0;
+        for (int cell : state.legalMoves()) {
+            for (int d = 0; d < Board.DIRECTIONS; d++) {
+                int nb = board.neighbor(cell, d);
+                if (nb >= 0 && state.owner(nb) == GameState.RED) {
+                    found[count++] = cell;
+                    break;
+                }
+            }
+        }
+        if (count == 0)
+            throw new IllegalStateException("No capturing move on the benchmark board");
+        captures = Arrays.copyOf(found, count);
+    }
+
+    @Benchmark
+    public int legalMoves() {
+        return state.legalMoves(moves);
+    }
+
+    /**
+     * Resolves one capture and rolls it back: the work behind
+     * {@code HexGrid.checkAndChangeColour} on the incremental engine.
+     */
+    @Benchmark
+    public int captureAndUndo() {
+        int cell = captures[next];
+        next = next + 1 == captures.length ? 0 : next + 1;
+        int captured = state.play(cell);
+        state.undo();
+        return captured;
+    }
+}
@@ -0,0 +1,413 @@
+package com.charliezhang.hexoust;
+
+import java.util.Arrays;
+
+/**
+ * A deterministic negamax player with alpha-beta pruning, iterative deepening
+ * and aspiration windows, searching within a hard time budget.
+ * <p>
+ * Scores are always from the point of view of the side to move. Because a
+ * capture keeps the turn, a child position is negated only when the side to
+ * move actually changes; otherwise its score and window are passed through
+ * unchanged. Moves are ordered hash move first, then captures, then the two
+ * killer moves of the ply, then by history score. At the horizon a capture-only
+ * quiescence search resolves capture chains, since a capture is usually
+ * followed by another move of the same player. Late in the game nearly every
+ * move captures, so quiescence only tries the few captures that gain the most
+ * stones, and stops trying once the gain cannot lift the score to alpha.
+ * <p>
+ * While there are only a few stones on the board, positions are stored in the
+ * transposition table under their canonical {@link Symmetry} form, with the
+ * move mapped into that frame, so the mirror images and rotations the opening
+ * is full of share one entry. With more stones a symmetric twin is rarely
+ * reached and the plain hash is used.
+ */
+public final class AlphaBetaPlayer implements Player {
+
+    /** Score of a won position, less the number of plies needed to reach it. */
+    static final int WIN = 1_000_000;
+
+    /** Scores beyond this are wins or losses rather than evaluations. */
+    private static final int WIN_BOUND = WIN - 1000;
+
+    private static final int STONE_VALUE = 100;
+    private static final int ASPIRATION = 50;
+    private static final int MAX_PLY = 128;
+    private static final int MAX_DEPTH = 64;
+    private static final int QUIESCENCE_PLIES = 8;
+
+    /** Captures tried per quiescence node, largest gain first. */
+    private static final int QUIESCENCE_MOVES = 4;
+
+    /** Stones a capture chain may win beyond the first capture before it is pruned. */
+    private static final int DELTA_STONES = 2;
+
+    /** Positions with at most this many stones are stored in canonical form. */
+    private static final int CANONICAL_STONES = 12;
+
+    /** Ordering keys; history scores are kept below KILLER. */
+    private static final int HASH_MOVE = 1 << 30;
+    private static final int CAPTURE = 1 << 29;
+    private static final int KILLER = 1 << 28;
+
+    private final long budgetMillis;
+    private final int maxDepth;
+    private final TranspositionTable table;
+
+    private GameState state;
+    private Board board;
+    private Symmetry symmetry;
+    private int[][] moveBuffers;
+    private int[][] orderBuffers;
+    private int[] killers;
+    private int[] history;
+
+    private long deadline;
+    private boolean aborted;
+    private long nodes;
+    private int rootMove;
+
+    private volatile long lastNodes;
+    private volatile int lastDepth;
+    private volatile int lastScore;
+    private volatile long lastNanos;
+
+    /**
+     * Creates a player with the given time budget and a 16 MB transposition table.
+     *
+     * @param budgetMillis the thinking time per move
+     */
+    public AlphaBetaPlayer(long budgetMillis) {
+        this(budgetMillis, MAX_DEPTH, 16);
+    }
+
+    /**
+     * Creates a fully configured player. The search stops at whichever limit
+     * is reached first.
+     *
+     * @param budgetMillis   the thinking time per move
+     * @param maxDepth       the deepest iteration to search
+     * @param tableMegabytes the size of the transposition table
+     */
+    public AlphaBetaPlayer(long budgetMillis, int maxDepth, int tableMegabytes) {
+        if (maxDepth < 1 || maxDepth > MAX_DEPTH)
+            throw new IllegalArgumentException("maxDepth must be between 1 and " + MAX_DEPTH);
+        this.budgetMillis = budgetMillis;
+        this.maxDepth = maxDepth;
+        this.table = new TranspositionTable(tableMegabytes);
+    }
+
+    @Override
+    public String name() {
+        return "alphabeta";
+    }
+
+    @Override
+    public synchronized int chooseMove(GameState position) {
+        long start = System.nanoTime();
+        state = position.copy();
+        if (board != state.board()) {
+            board = state.board();
+            symmetry = board.symmetry();
+            moveBuffers = new int[MAX_PLY + 1][board.size()];
+            orderBuffers = new int[MAX_PLY + 1][board.size()];
+            history = new int[2 * board.size()];
+            table.clear();
+        }
+        killers = new int[2 * (MAX_PLY + 1)];
+        Arrays.fill(killers, -1);
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 2;
+        }
+        table.newSearch();
+        deadline = start + budgetMillis * 1_000_000L;
+        aborted = false;
+        nodes = 0;
+
+        int[] moves = state.legalMoves();
+        if (moves.length == 0)
+            throw new IllegalArgumentException("No legal move to choose");
+        int bestMove = moves[0];
+        int bestScore = 0;
+        int depthReached = 0;
+        for (int depth = 1; depth <= maxDepth && moves.length > 1; depth++) {
+            int score;
+            if (depth >= 3 && Math.abs(bestScore) < WIN_BOUND) {
+                int alpha = bestScore - ASPIRATION;
+                int beta = bestScore + ASPIRATION;
+                score = search(depth, 0, alpha, beta);
+                if (!aborted && (score <= alpha || score >= beta)) {
+                    score = search(depth, 0, -WIN - 1, WIN + 1);
+                }
+            } else {
+                score = search(depth, 0, -WIN - 1, WIN + 1);
+            }
+            if (aborted) {
+                break;
+            }
+            bestMove = rootMove;
+            bestScore = score;
+            depthReached = depth;
+            if (Math.abs(score) >= WIN_BOUND) {
+                break;
+            }
+        }
+
+        lastNodes = nodes;
+        lastDepth = depthReached;
+        lastScore = bestScore;
+        lastNanos = Math.max(1, System.nanoTime() - start);
+        state = null;
+        return bestMove;
+    }
+
+    /**
+     * @return the number of positions visited by the last search
+     */
+    public long lastNodes() {
+        return lastNodes;
+    }
+
+    /**
+     * @return the deepest iteration the last search completed
+     */
+    public int lastDepth() {
+        return lastDepth;
+    }
+
+    /**
+     * @return the score of the last search, from the mover's point of view
+     */
+    public int lastScore() {
+        return lastScore;
+    }
+
+    /**
+     * @return a one-line summary of the last search
+     */
+    @Override
+    public String lastSearchSummary() {
+        return String.format("alphabeta: depth %d, %d nodes in %.0f ms (%.0f nodes/s), score %d",
+                lastDepth, lastNodes, lastNanos / 1e6, lastNodes * 1e9 / lastNanos, lastScore);
+    }
+
+    /**
+     * Counts a node and, every 1024 nodes, checks the clock.
+     *
+     * @return whether the search is out of time
+     */
+    private boolean outOfTime() {
+        if ((++nodes & 1023) == 0 && System.nanoTime() >= deadline) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    private int search(int depth, int ply, int alpha, int beta) {
+        if (outOfTime()) {
+            return 0;
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count = state.legalMoves(moves);
+        if (count == 0) {
+            return state.winner() == state.sideToMove() ? WIN - ply : -WIN + ply;
+        }
+        if (depth <= 0 || ply >= MAX_PLY) {
+            return quiesce(ply, alpha, beta, 0);
+        }
+
+        int frame = 0;
+        if (symmetry.size() > 1 && state.stoneCount(GameState.RED) + state.stoneCount(GameState.BLUE) <= CANONICAL_STONES) {
+            frame = symmetry.canonical(state);
+        }
+        long hash = frame == 0 ? state.hash() : symmetry.hash(state, frame);
+        int hashMove = -1;
+        long entry = table.probe(hash);
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (hashMove >= 0) {
+                hashMove = symmetry.preimage(frame, hashMove);
+            }
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        int side = state.sideToMove();
+        int[] keys = orderBuffers[ply];
+        for (int i = 0; i < count; i++) {
+            keys[i] = orderKey(moves[i], side, ply, hashMove);
+        }
+
+        int originalAlpha = alpha;
+        int best = -WIN - 1;
+        int bestMove = -1;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(moves, keys, i, count);
+            boolean capture = isCapture(move, side);
+            state.play(move);
+            int score = state.sideToMove() == side
+                    ? search(depth - 1, ply + 1, alpha, beta)
+                    : -search(depth - 1, ply + 1, -beta, -alpha);
+            state.undo();
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                if (!capture) {
+                    int slot = 2 * ply;
+                    if (killers[slot] != move) {
+                        killers[slot + 1] = killers[slot];
+                        killers[slot] = move;
+                    }
+                    int h = side * board.size() + move;
+                    history[h] = Math.min(KILLER - 1, history[h] + depth * depth);
+                }
+                break;
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(hash, bestMove >= 0 ? symmetry.image(frame, bestMove) : -1, toTable(best, ply), depth, bound);
+        if (ply == 0) {
+            rootMove = bestMove;
+        }
+        return best;
+    }
+
+    /**
+     * Searches captures only, standing pat on the static evaluation, until the
+     * position is quiet or the ply limit is reached. Captures are tried by
+     * stones gained, at most {@link #QUIESCENCE_MOVES} of them, and none whose
+     * gain leaves the score short of alpha by more than {@link #DELTA_STONES}.
+     */
+    private int quiesce(int ply, int alpha, int beta, int qply) {
+        if (outOfTime()) {
+            return 0;
+        }
+        int standPat = evaluate();
+        if (standPat >= beta || qply >= QUIESCENCE_PLIES || ply >= MAX_PLY) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+        int side = state.sideToMove();
+        int[] moves = moveBuffers[ply];
+        int[] gains = orderBuffers[ply];
+        int count = state.legalMoves(moves);
+        int captures = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (isCapture(move, side)) {
+                gains[captures] = state.play(move);
+                state.undo();
+                moves[captures++] = move;
+            }
+        }
+        for (int i = 0; i < Math.min(captures, QUIESCENCE_MOVES); i++) {
+            int move = pickNext(moves, gains, i, captures);
+            if (standPat + STONE_VALUE * (gains[i] + DELTA_STONES) <= alpha) {
+                break;
+            }
+            state.play(move);
+            int score;
+            if (state.isTerminal()) {
+                score = state.winner() == side ? WIN - ply - 1 : -WIN + ply + 1;
+            } else if (state.sideToMove() == side) {
+                score = quiesce(ply + 1, alpha, beta, qply + 1);
+            } else {
+                score = -quiesce(ply + 1, -beta, -alpha, qply + 1);
+            }
+            state.undo();
+            if (aborted) {
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Material balance from the side to move's point of view.
+     */
+    private int evaluate() {
+        int side = state.sideToMove();
+        return STONE_VALUE * (state.stoneCount(side) - state.stoneCount(side ^ 1));
+    }
+
+    /**
+     * A legal move captures exactly when it touches a friendly stone.
+     */
+    private boolean isCapture(int move, int side) {
+        for (int d = 0; d < Board.DIRECTIONS; d++) {
+            int nb = board.neighbor(move, d);
+            if (nb >= 0 && state.owner(nb) == side) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int orderKey(int move, int side, int ply, int hashMove) {
+        if (move == hashMove) {
+            return HASH_MOVE;
+        }
+        if (isCapture(move, side)) {
+            return CAPTURE;
+        }
+        if (killers[2 * ply] == move || killers[2 * ply + 1] == move) {
+            return KILLER;
+        }
+        return history[side * board.size() + move];
+    }
+
+    /**
+     * Selection step of a lazy selection sort: swaps the best remaining move
+     * into position i and returns it.
+     */
+    private static int pickNext(int[] moves, int[] keys, int i, int count) {
+        int best = i;
+        for (int j = i + 1; j < count; j++) {
+            if (keys[j] > keys[best]) {
+                best = j;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[i];
+        moves[i] = move;
+        int key = keys[best];
+        keys[best] = keys[i];
+        keys[i] = key;
+        return move;
+    }
+
+    /** Win scores are stored relative to the node, so they stay valid at any ply. */
+    private static int toTable(int score, int ply) {
+        return score >= WIN_BOUND ? score + ply : score <= -WIN_BOUND ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score >= WIN_BOUND ? score - ply : score <= -WIN_BOUND ? score + ply : score;
+    }
+}
@@ -0,0 +1,177 @@
+package com.charliezhang.hexoust;
+
+import javax.swing.Timer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drives every animation of a panel from one Swing timer.
+ * <p>
+ * The timer fires once per display frame while anything is animating and is
+ * stopped as soon as nothing is. Animations advance in fixed steps of
+ * {@link #STEP_NANOS}, however irregularly the timer fires: each frame runs as
+ * many steps as the elapsed time covers, up to {@link #MAX_STEPS_PER_FRAME}
+ * so a stall does not turn into a burst. A frame that ran at least one step
+ * requests exactly one repaint. All methods must be called on the event
+ * dispatch thread.
+ */
+final class AnimationScheduler {
+
+    /** Something that advances in fixed steps. */
+    interface Animation {
+        /**
+         * Advances the animation by one step.
+         *
+         * @return false once the animation has finished and should be removed
+         */
+        boolean step();
+    }
+
+    /** Length of one animation step: the 30 ms tick the confetti was designed for. */
+    static final long STEP_NANOS = 30_000_000L;
+
+    /** The timer period, about one 60 Hz display frame. */
+    static final int FRAME_MILLIS = 16;
+
+    /** Most steps run in one frame; time beyond that is dropped. */
+    static final int MAX_STEPS_PER_FRAME = 5;
+
+    private final Runnable repaint;
+    private final Timer timer;
+    private final List<Animation> animations = new ArrayList<>();
+
+    private long lastTick;
+    private long accumulated;
+
+    private long frames;
+    private long steps;
+    private long totalFrameNanos;
+    private long maxFrameNanos;
+    private long droppedNanos;
+
+    /**
+     * @param repaint requests a repaint of the panel
+     */
+    AnimationScheduler(Runnable repaint) {
+        this.repaint = repaint;
+        this.timer = new Timer(FRAME_MILLIS, e -> tick(System.nanoTime()));
+        this.timer.setCoalesce(true);
+    }
+
+    /**
+     * Starts an animation. Its first step runs on the next frame that covers
+     * a full step.
+     *
+     * @param animation the animation
+     */
+    void start(Animation animation) {
+        animations.add(animation);
+        if (!timer.isRunning()) {
+            lastTick = System.nanoTime();
+            accumulated = 0;
+            timer.start();
+        }
+    }
+
+    /**
+     * Stops an animation without running any more of its steps.
+     *
+     * @param animation the animation
+     */
+    void cancel(Animation animation) {
+        animations.remove(animation);
+        if (animations.isEmpty()) {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Stops every animation.
+     */
+    void cancelAll() {
+        animations.clear();
+        timer.stop();
+    }
+
+    /**
+     * @return whether any animation is running
+     */
+    boolean isAnimating() {
+        return !animations.isEmpty();
+    }
+
+    /**
+     * Runs the steps due at the given time and requests a repaint if any ran.
+     *
+     * @param now the current {@link System#nanoTime()}
+     */
+    void tick(long now) {
+        long elapsed = Math.max(0, now - lastTick);
+        lastTick = now;
+        frames++;
+        totalFrameNanos += elapsed;
+        maxFrameNanos = Math.max(maxFrameNanos, elapsed);
+
+        accumulated += elapsed;
+        int due = 0;
+        while (accumulated >= STEP_NANOS && due < MAX_STEPS_PER_FRAME) {
+            accumulated -= STEP_NANOS;
+            due++;
+        }
+        if (accumulated >= STEP_NANOS) {
+            droppedNanos += accumulated - accumulated % STEP_NANOS;
+            accumulated %= STEP_NANOS;
+        }
+
+        for (int s = 0; s < due && !animations.isEmpty(); s++) {
+            steps++;
+            // Step a snapshot, so an animation may start or cancel others
+            for (Animation animation : animations.toArray(new Animation[0])) {
+                if (!animation.step()) {
+                    animations.remove(animation);
+                }
+            }
+        }
+        if (due > 0) {
+            repaint.run();
+        }
+        if (animations.isEmpty()) {
+            timer.stop();
+        }
+    }
+
+    /**
+     * @return the number of frames the timer has fired
+     */
+    long frames() {
+        return frames;
+    }
+
+    /**
+     * @return the number of animation steps run
+     */
+    long steps() {
+        return steps;
+    }
+
+    /**
+     * @return the mean time between frames in milliseconds
+     */
+    double meanFrameMillis() {
+        return frames == 0 ? 0 : totalFrameNanos / 1e6 / frames;
+    }
+
+    /**
+     * @return the longest time between two frames in milliseconds
+     */
+    double maxFrameMillis() {
+        return maxFrameNanos / 1e6;
+    }
+
+    /**
+     * @return animation time skipped because frames arrived too late, in milliseconds
+     */
+    double droppedMillis() {
+        return droppedNanos / 1e6;
+    }
+}
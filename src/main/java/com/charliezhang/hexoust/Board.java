@@ -0,0 +1,353 @@
+package com.charliezhang.hexoust;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The fixed topology of a HexOust board. Every cell is given a dense id in
+ * {@code [0, size())} and the six neighbours of every cell are resolved once at
+ * construction into a flat table, so neighbour lookup is a single array read that
+ * is independent of pixel geometry and rendering scale.
+ * <p>
+ * A Board holds no stones and no rendering state, so one instance can be
+ * shared by any number of games.
+ */
+public final class Board {
+
+    /** Number of neighbour slots per cell, one per {@link HexCube#direction(int)}. */
+    public static final int DIRECTIONS = 6;
+
+    /** Cube coordinates of each cell, indexed by cell id (null for boards built from pixel geometry). */
+    private final HexCube[] cells;
+
+    /** Neighbour table: entry {@code cell * 6 + direction} holds the neighbouring cell id, or -1 if off the board. */
+    private final int[] neighbors;
+
+    /** Bounding box of the cells in axial coordinates. */
+    private final int minQ;
+    private final int minR;
+    private final int spanQ;
+    private final int spanR;
+
+    /** Cell id of each axial coordinate in the bounding box, or -1 if it is off the board. */
+    private final int[] index;
+
+    /** Zobrist key of every stone, indexed by {@code cell * 2 + player}. */
+    private final long[] zobrist;
+
+    /** The rotations and reflections that map the board onto itself. */
+    private final Symmetry symmetry;
+
+    /** Hash of the neighbour table, or 0 until it is first asked for. */
+    private int fingerprint;
+
+    private Board(HexCube[] cells, int[] neighbors) {
+        this.cells = cells;
+        this.neighbors = neighbors;
+        this.zobrist = Zobrist.keys(neighbors.length / DIRECTIONS);
+        int loQ = 0, hiQ = -1, loR = 0, hiR = -1;
+        if (cells != null && cells.length > 0) {
+            loQ = hiQ = cells[0].q;
+            loR = hiR = cells[0].r;
+            for (HexCube h : cells) {
+                loQ = Math.min(loQ, h.q);
+                hiQ = Math.max(hiQ, h.q);
+                loR = Math.min(loR, h.r);
+                hiR = Math.max(hiR, h.r);
+            }
+        }
+        this.minQ = loQ;
+        this.minR = loR;
+        this.spanQ = hiQ - loQ + 1;
+        this.spanR = hiR - loR + 1;
+        this.index = new int[spanQ * spanR];
+        Arrays.fill(index, -1);
+        if (cells != null) {
+            for (int i = 0; i < cells.length; i++) {
+                index[(cells[i].q - minQ) * spanR + (cells[i].r - minR)] = i;
+            }
+        }
+        this.symmetry = new Symmetry(this);
+    }
+
+    /** The outlines a board can be generated in, each centred on the origin cell. */
+    public enum Shape {
+        /** A regular hexagon: every cell within the radius of the centre. */
+        HEXAGON,
+        /** A rhombus of {@code 2 * radius + 1} cells a side. */
+        RHOMBUS,
+        /** A triangle of {@code 3 * radius + 1} cells a side. */
+        TRIANGLE
+    }
+
+    /**
+     * Builds a board of the given shape. Cells are generated straight from
+     * their axial coordinates, so this takes time linear in the number of cells.
+     *
+     * @param shape  the outline of the board
+     * @param radius the extent of the board from the centre cell
+     * @return the board
+     * @throws IllegalArgumentException if radius is negative
+     */
+    public static Board of(Shape shape, int radius) {
+        return switch (shape) {
+            case HEXAGON -> hexagon(radius);
+            case RHOMBUS -> rhombus(radius);
+            case TRIANGLE -> triangle(radius);
+        };
+    }
+
+    /**
+     * Builds a regular hexagonal board of the given radius. Cells are numbered
+     * in ascending q, then ascending r order.
+     *
+     * @param radius the number of rings around the centre cell
+     * @return the board
+     * @throws IllegalArgumentException if radius is negative
+     */
+    public static Board hexagon(int radius) {
+        if (radius < 0)
+            throw new IllegalArgumentException("radius must be non-negative");
+        List<HexCube> cells = new ArrayList<>(3 * radius * (radius + 1) + 1);
+        for (int q = -radius; q <= radius; q++) {
+            int r1 = Math.max(-radius, -q - radius);
+            int r2 = Math.min(radius, -q + radius);
+            for (int r = r1; r <= r2; r++) {
+                cells.add(HexCube.of(q, r));
+            }
+        }
+        return fromCells(cells);
+    }
+
+    /**
+     * Builds a rhombus-shaped board: every cell with both axial coordinates
+     * within the radius. Cells are numbered in ascending q, then ascending r order.
+     *
+     * @param radius the largest axial coordinate
+     * @return the board
+     * @throws IllegalArgumentException if radius is negative
+     */
+    public static Board rhombus(int radius) {
+        if (radius < 0)
+            throw new IllegalArgumentException("radius must be non-negative");
+        List<HexCube> cells = new ArrayList<>((2 * radius + 1) * (2 * radius + 1));
+        for (int q = -radius; q <= radius; q++) {
+            for (int r = -radius; r <= radius; r++) {
+                cells.add(HexCube.of(q, r));
+            }
+        }
+        return fromCells(cells);
+    }
+
+    /**
+     * Builds a triangular board: every cell whose three cube coordinates are
+     * all at least {@code -radius}. Cells are numbered in ascending q, then
+     * ascending r order.
+     *
+     * @param radius the distance from the centre cell to each side
+     * @return the board
+     * @throws IllegalArgumentException if radius is negative
+     */
+    public static Board triangle(int radius) {
+        if (radius < 0)
+            throw new IllegalArgumentException("radius must be non-negative");
+        List<HexCube> cells = new ArrayList<>();
+        for (int q = -radius; q <= 2 * radius; q++) {
+            // s = -q - r >= -radius bounds r above
+            for (int r = -radius; r <= radius - q; r++) {
+                cells.add(HexCube.of(q, r));
+            }
+        }
+        return fromCells(cells);
+    }
+
+    /**
+     * Builds a board from an arbitrary set of cells. Slot {@code d} of a cell's
+     * neighbour table holds {@link HexCube#neighbor(int) neighbor(d)}.
+     *
+     * @param cells the cells of the board, in cell id order
+     * @return the board
+     */
+    public static Board fromCells(List<HexCube> cells) {
+        HexCube[] array = new HexCube[cells.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = HexCube.of(cells.get(i).q, cells.get(i).r);
+        }
+        Board board = new Board(array, new int[array.length * DIRECTIONS]);
+        for (int i = 0; i < array.length; i++) {
+            for (int d = 0; d < DIRECTIONS; d++) {
+                board.neighbors[i * DIRECTIONS + d] = board.indexAt(HexCube.neighbor(array[i].pack(), d));
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Builds a board without cube coordinates for a grid that only exists as
+     * pixel polygons. Two cells are adjacent when their centers are no more than
+     * {@code maxDistance} apart; each neighbour is slotted by the 60 degree sector
+     * it lies in. This is quadratic in the number of cells, but only runs once.
+     *
+     * @param centers     the pixel center of each cell, in cell id order
+     * @param maxDistance the largest center-to-center distance between neighbours
+     * @return the board
+     */
+    static Board fromCenters(Point[] centers, double maxDistance) {
+        int[] neighbors = new int[centers.length * DIRECTIONS];
+        Arrays.fill(neighbors, -1);
+        for (int i = 0; i < centers.length; i++) {
+            for (int j = 0; j < centers.length; j++) {
+                double dx = centers[j].x - centers[i].x;
+                double dy = centers[j].y - centers[i].y;
+                double distance = Math.sqrt(dx * dx + dy * dy);
+                if (distance == 0 || distance > maxDistance) {
+                    continue;
+                }
+                double angle = Math.toDegrees(Math.atan2(-dy, dx));
+                int slot = (int) Math.floor((angle + 360.0) / 60.0) % DIRECTIONS;
+                for (int k = 0; k < DIRECTIONS && neighbors[i * DIRECTIONS + slot] != -1; k++) {
+                    slot = (slot + 1) % DIRECTIONS;
+                }
+                if (neighbors[i * DIRECTIONS + slot] == -1) {
+                    neighbors[i * DIRECTIONS + slot] = j;
+                }
+            }
+        }
+        return new Board(null, neighbors);
+    }
+
+    /**
+     * @return the number of cells on the board
+     */
+    public int size() {
+        return cells != null ? cells.length : neighbors.length / DIRECTIONS;
+    }
+
+    /**
+     * Returns the cube coordinates of a cell. The board holds one shared
+     * instance per cell, so callers never need to allocate their own.
+     *
+     * @param cell the cell id
+     * @return the coordinates of the cell
+     * @throws IllegalStateException if the board was built without coordinates
+     */
+    public HexCube cube(int cell) {
+        if (cells == null)
+            throw new IllegalStateException("Board has no cube coordinates");
+        return cells[cell];
+    }
+
+    /**
+     * @return whether the board was built with cube coordinates rather than from pixel geometry
+     */
+    boolean hasCoordinates() {
+        return cells != null;
+    }
+
+    /**
+     * @return the rotations and reflections that map the board onto itself
+     */
+    public Symmetry symmetry() {
+        return symmetry;
+    }
+
+    /**
+     * Returns the id of the cell at the given coordinates.
+     *
+     * @param h the coordinates
+     * @return the cell id, or -1 if the coordinates are off the board
+     */
+    public int indexOf(HexCube h) {
+        return indexOf(h.q, h.r);
+    }
+
+    /**
+     * Returns the id of the cell at the given axial coordinates.
+     *
+     * @param q the q-coordinate
+     * @param r the r-coordinate
+     * @return the cell id, or -1 if the coordinates are off the board
+     */
+    public int indexOf(int q, int r) {
+        int dq = q - minQ;
+        int dr = r - minR;
+        if (dq < 0 || dq >= spanQ || dr < 0 || dr >= spanR) {
+            return -1;
+        }
+        return index[dq * spanR + dr];
+    }
+
+    /**
+     * Returns the id of the cell at the given packed coordinates.
+     *
+     * @param packed coordinates packed with {@link HexCube#pack(int, int)}
+     * @return the cell id, or -1 if the coordinates are off the board
+     */
+    public int indexAt(int packed) {
+        return indexOf(HexCube.packedQ(packed), HexCube.packedR(packed));
+    }
+
+    /**
+     * Returns the neighbour of a cell in the given direction.
+     *
+     * @param cell      the cell id
+     * @param direction the direction (0 to 5)
+     * @return the neighbouring cell id, or -1 if it is off the board
+     */
+    public int neighbor(int cell, int direction) {
+        return neighbors[cell * DIRECTIONS + direction];
+    }
+
+    /**
+     * @param cell the cell id
+     * @return the number of on-board neighbours of the cell
+     */
+    public int degree(int cell) {
+        int count = 0;
+        for (int d = 0; d < DIRECTIONS; d++) {
+            if (neighbors[cell * DIRECTIONS + d] >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the shared neighbour table, for loops that walk it directly. Entry
+     * {@code cell * 6 + direction} holds the neighbouring cell id, or -1. The
+     * array must not be modified.
+     *
+     * @return the neighbour table
+     */
+    int[] neighborTable() {
+        return neighbors;
+    }
+
+    /**
+     * Returns the shared Zobrist keys of the board's stones, indexed by
+     * {@code cell * 2 + player}. The array must not be modified.
+     *
+     * @return the keys
+     */
+    long[] zobristKeys() {
+        return zobrist;
+    }
+
+    /**
+     * Returns a hash of the board's adjacency. Files written for one board
+     * store it so that a board of the same size but another shape, such as
+     * {@code hexagon:5} and {@code triangle:4}, is not mistaken for it.
+     *
+     * @return the fingerprint
+     */
+    int fingerprint() {
+        // The table is filled in after construction, so the hash is taken on first use
+        int hash = fingerprint;
+        if (hash == 0) {
+            hash = Arrays.hashCode(neighbors);
+            fingerprint = hash;
+        }
+        return hash;
+    }
+}
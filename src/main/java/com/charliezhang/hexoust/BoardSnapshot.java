@@ -0,0 +1,103 @@
+package com.charliezhang.hexoust;
+
+/**
+ * An immutable copy of the stones and turn of a {@link GameState}, which the
+ * game worker publishes after every change and the renderer reads from any
+ * thread without locking. Taking one copies two bitboards, a few words per 64
+ * cells.
+ */
+final class BoardSnapshot {
+
+    private final long[][] stones;
+
+    /** The player to move. */
+    final int side;
+
+    /** The winning player, or NONE while the game is in progress. */
+    final int winner;
+
+    /** Stones placed since the start of the game. */
+    final int placements;
+
+    /** Moves that can be taken back and replayed. */
+    final int moveCount;
+    final int redoCount;
+
+    /**
+     * @param state the position to copy
+     */
+    BoardSnapshot(GameState state) {
+        this.stones = new long[][] {state.stoneBits(GameState.RED), state.stoneBits(GameState.BLUE)};
+        this.side = state.sideToMove();
+        this.winner = state.winner();
+        this.placements = state.placements();
+        this.moveCount = state.moveCount();
+        this.redoCount = state.redoCount();
+    }
+
+    /**
+     * @param cell the cell id
+     * @return the owner of the cell, or NONE
+     */
+    int owner(int cell) {
+        long bit = 1L << cell;
+        if ((stones[GameState.RED][cell >>> 6] & bit) != 0) {
+            return GameState.RED;
+        }
+        return (stones[GameState.BLUE][cell >>> 6] & bit) != 0 ? GameState.BLUE : GameState.NONE;
+    }
+
+    /**
+     * @param player RED or BLUE
+     * @return the number of the player's stones
+     */
+    int stoneCount(int player) {
+        int count = 0;
+        for (long word : stones[player]) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @param player RED or BLUE
+     * @param from   the first cell id to look at
+     * @return the first cell at or after {@code from} holding one of the player's stones, or -1
+     */
+    int nextStone(int player, int from) {
+        long[] bits = stones[player];
+        int w = from >>> 6;
+        if (w >= bits.length) {
+            return -1;
+        }
+        long word = bits[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == bits.length) {
+                return -1;
+            }
+            word = bits[w];
+        }
+    }
+
+    /**
+     * Returns the cells whose owner differs between two snapshots of one board,
+     * found a bitboard word at a time.
+     *
+     * @param other a snapshot of the same board
+     * @param out   receives the changed cell ids; it must hold one entry per cell
+     * @return the number of changed cells
+     */
+    int changedCells(BoardSnapshot other, int[] out) {
+        int count = 0;
+        for (int w = 0; w < stones[0].length; w++) {
+            long diff = (stones[0][w] ^ other.stones[0][w]) | (stones[1][w] ^ other.stones[1][w]);
+            for (; diff != 0; diff &= diff - 1) {
+                out[count++] = (w << 6) + Long.numberOfTrailingZeros(diff);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,51 @@
+package com.charliezhang.hexoust;
+
+/**
+ * A player that plays the best known move from an {@link OpeningBook} while the
+ * game is still in the book, and hands every other position to another player.
+ * Book moves are answered without searching, so the other player's thinking
+ * time goes to the positions where it matters.
+ */
+public final class BookPlayer implements Player {
+
+    private final OpeningBook book;
+    private final Player player;
+    private String lastSummary;
+
+    /**
+     * @param book   the book to look positions up in
+     * @param player the player for positions outside the book
+     */
+    public BookPlayer(OpeningBook book, Player player) {
+        this.book = book;
+        this.player = player;
+    }
+
+    @Override
+    public int chooseMove(GameState state) {
+        OpeningBook.Move move = book.bestMove(state);
+        if (move == null) {
+            int cell = player.chooseMove(state);
+            lastSummary = player.lastSearchSummary();
+            return cell;
+        }
+        lastSummary = String.format("book: %d of %d games won", move.wins(), move.games());
+        return move.cell();
+    }
+
+    @Override
+    public String name() {
+        return player.name() + "+book";
+    }
+
+    @Override
+    public String lastSearchSummary() {
+        return lastSummary;
+    }
+
+    @Override
+    public void close() {
+        player.close();
+        book.close();
+    }
+}
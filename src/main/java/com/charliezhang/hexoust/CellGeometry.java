@@ -0,0 +1,137 @@
+package com.charliezhang.hexoust;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.util.List;
+
+/**
+ * Screen geometry of every cell of a grid, indexed by cell id: the outline
+ * with its corners rounded to pixels, its bounds, its center, and the gradient
+ * each player's stone is filled with. Everything is computed once from the
+ * cell polygons, so drawing a stone is two array reads and no allocation.
+ * A new instance is needed only when the cell polygons themselves change.
+ */
+final class CellGeometry {
+
+    /** Fill colour of each player's stones, indexed by player. */
+    private static final Color[] STONE_COLORS = {new Color(195, 0, 0), new Color(48, 30, 165)};
+
+    /** Outline colour of each player's stones, indexed by player. */
+    private static final Color[] OUTLINE_COLORS = {STONE_COLORS[0].darker(), STONE_COLORS[1].darker()};
+
+    private static final BasicStroke STONE_STROKE = new BasicStroke(2);
+
+    private final Polygon[] polygons;
+    private final Rectangle[] bounds;
+    private final Point[] centers;
+
+    /** Stone fill of each cell, indexed by {@code cell * 2 + player}. */
+    private final GradientPaint[] stonePaints;
+
+    /**
+     * @param hexagons the corners of each cell, indexed by cell id
+     */
+    CellGeometry(List<? extends List<Point>> hexagons) {
+        int cells = hexagons.size();
+        polygons = new Polygon[cells];
+        bounds = new Rectangle[cells];
+        centers = new Point[cells];
+        stonePaints = new GradientPaint[cells * 2];
+        for (int cell = 0; cell < cells; cell++) {
+            List<Point> hexagon = hexagons.get(cell);
+            int[] xPoints = new int[hexagon.size()];
+            int[] yPoints = new int[hexagon.size()];
+            for (int i = 0; i < hexagon.size(); i++) {
+                xPoints[i] = (int) Math.round(hexagon.get(i).x);
+                yPoints[i] = (int) Math.round(hexagon.get(i).y);
+            }
+            polygons[cell] = new Polygon(xPoints, yPoints, hexagon.size());
+            bounds[cell] = polygons[cell].getBounds();
+            centers[cell] = center(hexagon);
+
+            // The gradient runs between opposite corners, light to dark
+            int far = Math.min(3, hexagon.size() - 1);
+            for (int player = GameState.RED; player <= GameState.BLUE; player++) {
+                Color color = STONE_COLORS[player];
+                stonePaints[cell * 2 + player] = new GradientPaint(
+                        xPoints[0], yPoints[0], color.brighter(),
+                        xPoints[far], yPoints[far], color.darker());
+            }
+        }
+    }
+
+    /**
+     * Computes the center of a hexagon by averaging its vertices.
+     *
+     * @param hexagon the corners of the hexagon
+     * @return the center point
+     */
+    static Point center(List<Point> hexagon) {
+        double sumX = 0;
+        double sumY = 0;
+        for (Point p : hexagon) {
+            sumX += p.x;
+            sumY += p.y;
+        }
+        return new Point(sumX / hexagon.size(), sumY / hexagon.size());
+    }
+
+    /**
+     * @return the number of cells
+     */
+    int size() {
+        return polygons.length;
+    }
+
+    /**
+     * @param cell the cell id
+     * @return the outline of the cell; it must not be modified
+     */
+    Polygon polygon(int cell) {
+        return polygons[cell];
+    }
+
+    /**
+     * @param cell the cell id
+     * @return the bounding box of the outline; it must not be modified
+     */
+    Rectangle bounds(int cell) {
+        return bounds[cell];
+    }
+
+    /**
+     * @param cell the cell id
+     * @return the center of the cell
+     */
+    Point center(int cell) {
+        return centers[cell];
+    }
+
+    /**
+     * @return a copy of the centers of all cells, indexed by cell id
+     */
+    Point[] centers() {
+        return centers.clone();
+    }
+
+    /**
+     * Fills a cell with a player's stone.
+     *
+     * @param g2     the graphics to draw with
+     * @param cell   the cell id
+     * @param player RED or BLUE
+     */
+    void fillStone(Graphics2D g2, int cell, int player) {
+        Polygon hexagon = polygons[cell];
+        g2.setPaint(stonePaints[cell * 2 + player]);
+        g2.fillPolygon(hexagon);
+
+        g2.setColor(OUTLINE_COLORS[player]);
+        g2.setStroke(STONE_STROKE);
+        g2.drawPolygon(hexagon);
+    }
+}
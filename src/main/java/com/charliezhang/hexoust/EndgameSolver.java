@@ -0,0 +1,505 @@
+package com.charliezhang.hexoust;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves a small board exactly by retrograde analysis, for writing a
+ * {@link Tablebase}.
+ * <p>
+ * Solving takes four passes, each spread over a pool of threads:
+ * <ol>
+ *   <li>Every position reachable from the empty board is found breadth first,
+ *       expanding each frontier in parallel, and the keys are sorted. Only one
+ *       position of each set of symmetric positions is kept, under its
+ *       canonical key.</li>
+ *   <li>The moves of every position are resolved to the indices of the
+ *       positions they lead to, and games that are over are scored.</li>
+ *   <li>Values flow back from the finished games to their parents through
+ *       reverse edges, nearest first. A parent wins as soon as one child is good
+ *       for it and loses once every child is bad for it. A capture keeps the
+ *       turn, so a child reached by a capture is good for the parent when it is
+ *       a win for its own side to move, rather than a loss. Captures also let
+ *       positions repeat, so whatever is never resolved can be played forever
+ *       and is a draw.</li>
+ *   <li>Each position's best move is picked from its children: the fastest
+ *       win, the slowest loss, or a move that keeps the draw.</li>
+ * </ol>
+ * Everything is held in flat arrays indexed by position, a few dozen bytes
+ * per position plus 9 per move, so the number of positions is capped.
+ */
+public final class EndgameSolver {
+
+    /** Positions solved when no limit is given: about 1 GB of tables. */
+    public static final int DEFAULT_MAX_POSITIONS = 1 << 24;
+
+    private final Board board;
+    private final Symmetry symmetry;
+    private final int threads;
+    private final int maxPositions;
+
+    /** Keys of every reachable position, ascending; a position's index is its place here. */
+    private long[] keys;
+    private byte[] outcomes;
+    private int[] distances;
+    private byte[] bestMoves;
+    private long moveCount;
+
+    /**
+     * @param board        a board of at most {@value Tablebase#MAX_CELLS} cells
+     * @param threads      the number of threads to solve with
+     * @param maxPositions the most positions to hold before giving up
+     */
+    public EndgameSolver(Board board, int threads, int maxPositions) {
+        if (board.size() > Tablebase.MAX_CELLS)
+            throw new IllegalArgumentException("A tablebase holds boards of at most " + Tablebase.MAX_CELLS
+                    + " cells, not " + board.size());
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+        this.board = board;
+        this.symmetry = board.symmetry();
+        this.threads = threads;
+        this.maxPositions = maxPositions;
+    }
+
+    /**
+     * Solves every position reachable from the empty board.
+     *
+     * @throws IllegalStateException if there are more than the maximum positions
+     */
+    public void solve() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "endgame-solver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            keys = enumerate(pool);
+            int n = keys.length;
+            outcomes = new byte[n];
+            distances = new int[n];
+            bestMoves = new byte[n];
+
+            int[] firstChild = new int[n + 1];
+            inParallel(pool, n, (from, to) -> {
+                int[] moves = new int[board.size()];
+                for (int p = from; p < to; p++) {
+                    GameState position = Tablebase.position(board, keys[p]);
+                    int winner = position.winner();
+                    if (winner != GameState.NONE) {
+                        outcomes[p] = (byte) (winner == position.sideToMove() ? Tablebase.WIN : Tablebase.LOSS);
+                    } else {
+                        firstChild[p + 1] = position.legalMoves(moves);
+                    }
+                }
+            });
+            long edges = 0;
+            for (int p = 0; p < n; p++) {
+                edges += firstChild[p + 1];
+                if (edges > Integer.MAX_VALUE - 8)
+                    throw new IllegalStateException("Too many moves to hold: more than " + edges);
+                firstChild[p + 1] = (int) edges;
+            }
+            moveCount = edges;
+
+            // A child reached by a capture, with the same side to move, is stored complemented
+            int[] children = new int[(int) edges];
+            byte[] moveCells = new byte[(int) edges];
+            inParallel(pool, n, (from, to) -> {
+                int[] moves = new int[board.size()];
+                for (int p = from; p < to; p++) {
+                    if (firstChild[p] == firstChild[p + 1]) {
+                        continue;
+                    }
+                    GameState position = Tablebase.position(board, keys[p]);
+                    int count = position.legalMoves(moves);
+                    for (int i = 0; i < count; i++) {
+                        position.play(moves[i]);
+                        int child = Arrays.binarySearch(keys, canonicalKey(position));
+                        children[firstChild[p] + i] = position.sideToMove() == (int) (keys[p] >>> 2 * board.size()) ? ~child : child;
+                        moveCells[firstChild[p] + i] = (byte) moves[i];
+                        position.undo();
+                    }
+                }
+            });
+
+            propagate(firstChild, children);
+
+            inParallel(pool, n, (from, to) -> {
+                for (int p = from; p < to; p++) {
+                    bestMoves[p] = (byte) bestMove(p, firstChild, children, moveCells);
+                }
+            });
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds every position reachable from the empty board.
+     *
+     * @return their keys, ascending
+     */
+    private long[] enumerate(ExecutorService pool) throws InterruptedException {
+        LongSet seen = new LongSet();
+        long start = Tablebase.key(new GameState(board));
+        seen.add(start);
+        long[] frontier = {start};
+        while (frontier.length > 0) {
+            long[] current = frontier;
+            ConcurrentLinkedQueue<LongList> found = new ConcurrentLinkedQueue<>();
+            inParallel(pool, current.length, (from, to) -> {
+                LongList children = new LongList();
+                int[] moves = new int[board.size()];
+                for (int p = from; p < to; p++) {
+                    GameState position = Tablebase.position(board, current[p]);
+                    if (position.isTerminal()) {
+                        continue;
+                    }
+                    int count = position.legalMoves(moves);
+                    for (int i = 0; i < count; i++) {
+                        position.play(moves[i]);
+                        children.add(canonicalKey(position));
+                        position.undo();
+                    }
+                }
+                found.add(children);
+            });
+            LongList next = new LongList();
+            for (LongList children : found) {
+                for (int i = 0; i < children.size; i++) {
+                    if (seen.add(children.values[i])) {
+                        next.add(children.values[i]);
+                    }
+                }
+            }
+            if (seen.size > maxPositions)
+                throw new IllegalStateException("More than " + maxPositions + " positions; raise the limit or use a smaller board");
+            frontier = Arrays.copyOf(next.values, next.size);
+        }
+        long[] sorted = seen.toArray();
+        Arrays.parallelSort(sorted);
+        return sorted;
+    }
+
+    private long canonicalKey(GameState position) {
+        return Tablebase.canonicalKey(symmetry, board.size(), Tablebase.key(position));
+    }
+
+    /**
+     * Resolves the positions whose value follows from the finished games, in
+     * order of distance, so a win is found by its shortest line and a loss by
+     * its longest.
+     */
+    private void propagate(int[] firstChild, int[] children) {
+        int n = keys.length;
+        int[] firstParent = new int[n + 1];
+        for (int child : children) {
+            firstParent[(child < 0 ? ~child : child) + 1]++;
+        }
+        for (int c = 0; c < n; c++) {
+            firstParent[c + 1] += firstParent[c];
+        }
+        int[] parents = new int[children.length];
+        int[] fill = Arrays.copyOf(firstParent, n);
+        for (int p = 0; p < n; p++) {
+            for (int e = firstChild[p]; e < firstChild[p + 1]; e++) {
+                int child = children[e];
+                parents[child < 0 ? fill[~child]++ : fill[child]++] = child < 0 ? ~p : p;
+            }
+        }
+
+        int[] remaining = new int[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int p = 0; p < n; p++) {
+            remaining[p] = firstChild[p + 1] - firstChild[p];
+            if (remaining[p] == 0) {
+                queue[tail++] = p;
+            }
+        }
+        while (head < tail) {
+            int c = queue[head++];
+            for (int e = firstParent[c]; e < firstParent[c + 1]; e++) {
+                int p = parents[e] < 0 ? ~parents[e] : parents[e];
+                if (outcomes[p] != Tablebase.DRAW) {
+                    continue;
+                }
+                int forParent = parents[e] < 0 ? outcomes[c] : opposite(outcomes[c]);
+                if (forParent == Tablebase.WIN) {
+                    outcomes[p] = Tablebase.WIN;
+                } else if (--remaining[p] == 0) {
+                    outcomes[p] = Tablebase.LOSS;
+                } else {
+                    continue;
+                }
+                distances[p] = distances[c] + 1;
+                if (distances[p] > Tablebase.MAX_DISTANCE)
+                    throw new IllegalStateException("Game too long to store: " + distances[p] + " plies");
+                queue[tail++] = p;
+            }
+        }
+    }
+
+    private int bestMove(int p, int[] firstChild, int[] children, byte[] moveCells) {
+        int best = Tablebase.NO_MOVE;
+        int bestDistance = -1;
+        for (int e = firstChild[p]; e < firstChild[p + 1]; e++) {
+            int c = children[e] < 0 ? ~children[e] : children[e];
+            int forParent = children[e] < 0 ? outcomes[c] : opposite(outcomes[c]);
+            if (forParent != outcomes[p]) {
+                continue;
+            }
+            if (outcomes[p] == Tablebase.LOSS) {
+                if (distances[c] > bestDistance) {
+                    best = moveCells[e];
+                    bestDistance = distances[c];
+                }
+            } else if (outcomes[p] == Tablebase.DRAW || distances[c] == distances[p] - 1) {
+                return moveCells[e];
+            }
+        }
+        return best;
+    }
+
+    private static int opposite(int outcome) {
+        return outcome == Tablebase.DRAW ? Tablebase.DRAW : outcome ^ (Tablebase.WIN | Tablebase.LOSS);
+    }
+
+    /**
+     * @return the number of positions solved, one per set of symmetric positions
+     */
+    public int positions() {
+        return keys.length;
+    }
+
+    /**
+     * @return the number of moves between the positions solved
+     */
+    public long moves() {
+        return moveCount;
+    }
+
+    /**
+     * @param state a position on the solved board
+     * @return its value, or null if it cannot be reached from the empty board
+     */
+    public Tablebase.Entry probe(GameState state) {
+        long key = Tablebase.key(state);
+        int frame = Tablebase.canonicalFrame(symmetry, board.size(), key);
+        int p = Arrays.binarySearch(keys, Tablebase.image(symmetry, frame, board.size(), key));
+        if (p < 0) {
+            return null;
+        }
+        int move = bestMoves[p] & Tablebase.NO_MOVE;
+        return new Tablebase.Entry(outcomes[p], distances[p],
+                move == Tablebase.NO_MOVE ? -1 : symmetry.preimage(frame, move));
+    }
+
+    /**
+     * @param outcome {@link Tablebase#WIN}, {@link Tablebase#LOSS} or {@link Tablebase#DRAW}
+     * @return how many positions have the outcome for their side to move
+     */
+    public int count(int outcome) {
+        int count = 0;
+        for (byte o : outcomes) {
+            if (o == outcome) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes the solved positions as a tablebase file.
+     *
+     * @param file the file to create or replace
+     */
+    public void write(Path file) throws IOException {
+        if (Tablebase.HEADER_BYTES + (long) keys.length * (Long.BYTES + Integer.BYTES) > Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many positions to map: " + keys.length);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(Tablebase.MAGIC);
+            out.writeInt(Tablebase.VERSION);
+            out.writeInt(board.size());
+            out.writeInt(Tablebase.fingerprint(board));
+            out.writeLong(keys.length);
+            for (long key : keys) {
+                out.writeLong(key);
+            }
+            for (int p = 0; p < keys.length; p++) {
+                out.writeInt(Tablebase.entry(outcomes[p], distances[p], bestMoves[p] & Tablebase.NO_MOVE));
+            }
+        }
+    }
+
+    /** Work on a range of indices. */
+    private interface Chunk {
+        void run(int from, int to);
+    }
+
+    /**
+     * Splits {@code [0, count)} into a few chunks per thread and waits for all of them.
+     */
+    private void inParallel(ExecutorService pool, int count, Chunk chunk) throws InterruptedException {
+        int chunks = Math.min(count, threads * 8);
+        List<Callable<Void>> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int from = (int) ((long) count * c / chunks);
+            int to = (int) ((long) count * (c + 1) / chunks);
+            tasks.add(() -> {
+                chunk.run(from, to);
+                return null;
+            });
+        }
+        for (Future<Void> task : pool.invokeAll(tasks)) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /** A growable list of longs. */
+    private static final class LongList {
+        long[] values = new long[64];
+        int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /** An open-addressing set of non-negative longs. */
+    private static final class LongSet {
+        private long[] slots = filled(1 << 10);
+        int size;
+
+        boolean add(long key) {
+            if (2 * (size + 1) > slots.length) {
+                long[] old = slots;
+                slots = filled(old.length * 2);
+                for (long k : old) {
+                    if (k >= 0) {
+                        insert(k);
+                    }
+                }
+            }
+            if (!insert(key)) {
+                return false;
+            }
+            size++;
+            return true;
+        }
+
+        private boolean insert(long key) {
+            int mask = slots.length - 1;
+            for (int i = (int) (key * 0x9E3779B97F4A7C15L >>> 40) & mask; ; i = (i + 1) & mask) {
+                if (slots[i] == key) {
+                    return false;
+                }
+                if (slots[i] < 0) {
+                    slots[i] = key;
+                    return true;
+                }
+            }
+        }
+
+        long[] toArray() {
+            long[] keys = new long[size];
+            int n = 0;
+            for (long k : slots) {
+                if (k >= 0) {
+                    keys[n++] = k;
+                }
+            }
+            return keys;
+        }
+
+        private static long[] filled(int length) {
+            long[] slots = new long[length];
+            Arrays.fill(slots, -1L);
+            return slots;
+        }
+    }
+
+    /**
+     * Solves a board and writes its tablebase.
+     *
+     * @param args {@code [--radius=<radius>] [--shape=<shape>] [--threads=<n>] [--max-positions=<n>] <file>}
+     */
+    public static void main(String[] args) {
+        int radius = 1;
+        Board.Shape shape = Board.Shape.HEXAGON;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxPositions = DEFAULT_MAX_POSITIONS;
+        String file = null;
+        try {
+            for (String arg : args) {
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith("--radius=")) {
+                    radius = Integer.parseInt(value);
+                } else if (arg.startsWith("--shape=")) {
+                    try {
+                        shape = Board.Shape.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown shape: " + value);
+                    }
+                } else if (arg.startsWith("--threads=")) {
+                    threads = Integer.parseInt(value);
+                } else if (arg.startsWith("--max-positions=")) {
+                    maxPositions = Integer.parseInt(value);
+                } else if (arg.startsWith("--") || file != null) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else {
+                    file = arg;
+                }
+            }
+            if (file == null)
+                throw new IllegalArgumentException("No tablebase file given");
+            EndgameSolver solver = new EndgameSolver(Board.of(shape, radius), threads, maxPositions);
+            long start = System.nanoTime();
+            solver.solve();
+            long nanos = System.nanoTime() - start;
+            solver.write(Path.of(file));
+
+            Tablebase.Entry opening = solver.probe(new GameState(solver.board));
+            System.out.printf(Locale.ROOT, "%s radius %d: %d positions, %d moves, solved in %.0f ms on %d threads%n",
+                    shape.name().toLowerCase(Locale.ROOT), radius, solver.positions(), solver.moves(), nanos / 1e6, threads);
+            System.out.printf(Locale.ROOT, "Red to move on the empty board: %s%n", opening.outcome() == Tablebase.DRAW
+                    ? "draw" : (opening.outcome() == Tablebase.WIN ? "win" : "loss") + " in " + opening.distance() + " plies");
+            System.out.printf(Locale.ROOT, "%d wins, %d losses, %d draws for the side to move; written to %s%n",
+                    solver.count(Tablebase.WIN), solver.count(Tablebase.LOSS), solver.count(Tablebase.DRAW), file);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println(e.getMessage());
+            System.err.println("java HexGrid tablebase [--radius=<radius>] [--shape=<shape>] [--threads=<n>] [--max-positions=<n>] <file>");
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Could not write the tablebase: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.charliezhang.hexoust;
+
+/**
+ * Represents a fractional hexagonal grid cell in cube coordinates.
+ */
+class FractionalHexCube {
+    public FractionalHexCube(double q, double r, double s) {
+        this.q = q;
+        this.r = r;
+        this.s = s;
+        if (Math.round(q + r + s) != 0)
+            throw new IllegalArgumentException("q + r + s must be 0");
+    }
+    public final double q;
+    public final double r;
+    public final double s;
+
+    /**
+     * Rounds the fractional hex cube coordinates to the nearest integer HexCube.
+     *
+     * @return the rounded HexCube
+     */
+    public HexCube hexRound() {
+        int qi = (int)(Math.round(q));
+        int ri = (int)(Math.round(r));
+        int si = (int)(Math.round(s));
+        double q_diff = Math.abs(qi - q);
+        double r_diff = Math.abs(ri - r);
+        double s_diff = Math.abs(si - s);
+        if (q_diff > r_diff && q_diff > s_diff) {
+            qi = -ri - si;
+        } else if (r_diff > s_diff) {
+            ri = -qi - si;
+        } else {
+            si = -qi - ri;
+        }
+        return HexCube.of(qi, ri);
+    }
+}
@@ -0,0 +1,319 @@
+package com.charliezhang.hexoust;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A read-only, memory-mapped view of a directory of recorded games.
+ * <p>
+ * An archive is a sequence of segments, {@code games-00000.hxr} and so on, each
+ * with an index file {@code games-00000.idx} beside it. A segment starts with an
+ * 8 byte header (magic and version) followed by records; the index holds the
+ * 8 byte big-endian offset of each record in its segment. A record is a
+ * varint length followed by:
+ * <pre>
+ *   varint  number of cells on the board
+ *   int     fingerprint of the board's adjacency, big-endian
+ *   byte    result: 0 Red won, 1 Blue won, 2 unfinished
+ *   varint  number of moves
+ *   varint  per move: cell id &lt;&lt; 1 | 1 if the move captured
+ * </pre>
+ * Records are read through a {@link Cursor}, which decodes straight from the
+ * mapped segments and allocates nothing per record.
+ */
+public final class GameArchive implements AutoCloseable {
+
+    static final int MAGIC = 0x48585231; // "HXR1"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 8;
+
+    /** Result byte of a game that was not finished. */
+    static final int UNFINISHED = 2;
+
+    private final MappedByteBuffer[] segments;
+    private final MappedByteBuffer[] indexes;
+
+    /** Number of the first game of each segment, with the total count at the end. */
+    private final long[] firstGame;
+
+    private GameArchive(MappedByteBuffer[] segments, MappedByteBuffer[] indexes) {
+        this.segments = segments;
+        this.indexes = indexes;
+        this.firstGame = new long[segments.length + 1];
+        for (int s = 0; s < segments.length; s++) {
+            firstGame[s + 1] = firstGame[s] + indexes[s].capacity() / Long.BYTES;
+        }
+    }
+
+    /**
+     * Maps every segment of an archive. Games appended afterwards are not seen.
+     *
+     * @param directory the archive directory
+     * @return the archive
+     * @throws IOException if a segment cannot be read or is not an archive segment
+     */
+    public static GameArchive open(Path directory) throws IOException {
+        List<MappedByteBuffer> segments = new ArrayList<>();
+        List<MappedByteBuffer> indexes = new ArrayList<>();
+        for (int s = 0; Files.exists(segmentPath(directory, s)); s++) {
+            try (FileChannel records = FileChannel.open(segmentPath(directory, s), StandardOpenOption.READ);
+                 FileChannel index = FileChannel.open(indexPath(directory, s), StandardOpenOption.READ)) {
+                checkHeader(records, segmentPath(directory, s));
+                segments.add(records.map(FileChannel.MapMode.READ_ONLY, 0, records.size()));
+                // Ignore a trailing partial offset left by an interrupted write
+                indexes.add(index.map(FileChannel.MapMode.READ_ONLY, 0, index.size() / Long.BYTES * Long.BYTES));
+            }
+        }
+        return new GameArchive(segments.toArray(new MappedByteBuffer[0]), indexes.toArray(new MappedByteBuffer[0]));
+    }
+
+    /**
+     * @return the number of games in the archive
+     */
+    public long size() {
+        return firstGame[segments.length];
+    }
+
+    /**
+     * @return a cursor positioned before the first game
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Releases the archive. The mappings themselves are released by the
+     * garbage collector once no cursor refers to them.
+     */
+    @Override
+    public void close() {
+    }
+
+    static Path segmentPath(Path directory, int segment) {
+        return directory.resolve(String.format("games-%05d.hxr", segment));
+    }
+
+    static Path indexPath(Path directory, int segment) {
+        return directory.resolve(String.format("games-%05d.idx", segment));
+    }
+
+    static void checkHeader(FileChannel records, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        int read;
+        do {
+            read = records.read(header, header.position());
+        } while (read > 0 && header.hasRemaining());
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION)
+            throw new IOException("Not a game archive segment: " + path);
+    }
+
+    /**
+     * Reads games one at a time. A cursor is not thread-safe, but any number of
+     * cursors can read the same archive concurrently.
+     */
+    public final class Cursor {
+
+        private int segment;
+        private MappedByteBuffer data;
+        private long game = -1;
+
+        private int cells;
+        private int fingerprint;
+        private int result;
+        private int moveCount;
+        private int movesStart;
+
+        /** Read position of {@link #readVarint()} in the current segment. */
+        private int position;
+
+        private Cursor() {
+        }
+
+        /**
+         * Advances to the next game.
+         *
+         * @return false if there are no more games
+         */
+        public boolean next() {
+            if (game + 1 >= size()) {
+                return false;
+            }
+            seek(game + 1);
+            return true;
+        }
+
+        /**
+         * Moves to a game by number. Every record is found through the index,
+         * so a partial record left by an interrupted write is never misread.
+         *
+         * @param number the game number, from 0 to {@code size() - 1}
+         * @return this cursor
+         * @throws IndexOutOfBoundsException if there is no such game
+         */
+        public Cursor seek(long number) {
+            if (number < 0 || number >= size())
+                throw new IndexOutOfBoundsException("Game " + number + " of " + size());
+            int s = segment;
+            while (number < firstGame[s]) {
+                s--;
+            }
+            while (number >= firstGame[s + 1]) {
+                s++;
+            }
+            segment = s;
+            data = segments[s];
+            game = number;
+            decode((int) indexes[s].getLong((int) (number - firstGame[s]) * Long.BYTES));
+            return this;
+        }
+
+        private void decode(int offset) {
+            position = offset;
+            readVarint(); // record length, for readers that skip records
+            cells = readVarint();
+            fingerprint = data.getInt(position);
+            position += Integer.BYTES;
+            result = data.get(position++);
+            moveCount = readVarint();
+            movesStart = position;
+        }
+
+        /**
+         * @return the number of the current game
+         */
+        public long game() {
+            return game;
+        }
+
+        /**
+         * @return the number of cells of the board the game was played on
+         */
+        public int cells() {
+            return cells;
+        }
+
+        /**
+         * @param board a board
+         * @return whether the current game was played on the given board, not
+         *         just one with as many cells
+         */
+        public boolean playedOn(Board board) {
+            return board.size() == cells && board.fingerprint() == fingerprint;
+        }
+
+        /**
+         * @return RED or BLUE for the winner, or NONE if the game was not finished
+         */
+        public int result() {
+            return result == UNFINISHED ? GameState.NONE : result;
+        }
+
+        /**
+         * @return the number of moves in the game
+         */
+        public int moveCount() {
+            return moveCount;
+        }
+
+        /**
+         * Decodes the moves of the current game. Each entry is the cell id
+         * shifted left by one, with the low bit set if the move captured; see
+         * {@link #cell(int)} and {@link #captured(int)}.
+         *
+         * @param out receives the moves; it must hold {@link #moveCount()} entries
+         * @return the number of moves
+         */
+        public int moves(int[] out) {
+            position = movesStart;
+            for (int i = 0; i < moveCount; i++) {
+                out[i] = readVarint();
+            }
+            return moveCount;
+        }
+
+        /**
+         * Plays the current game forward on a position.
+         *
+         * @param state an empty position on the board the game was played on
+         * @param moves a buffer that holds {@link #moveCount()} entries
+         * @throws IllegalArgumentException if the game was played on another board
+         */
+        public void replay(GameState state, int[] moves) {
+            if (!playedOn(state.board()))
+                throw new IllegalArgumentException("Game was played on another board of " + cells + " cells");
+            int count = moves(moves);
+            for (int i = 0; i < count; i++) {
+                state.play(cell(moves[i]));
+            }
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data.get(position++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * @param move an entry written by {@link Cursor#moves(int[])}
+     * @return the cell id of the move
+     */
+    public static int cell(int move) {
+        return move >>> 1;
+    }
+
+    /**
+     * @param move an entry written by {@link Cursor#moves(int[])}
+     * @return whether the move captured
+     */
+    public static boolean captured(int move) {
+        return (move & 1) != 0;
+    }
+
+    /**
+     * Scans an archive and prints its game count, results and decode rate.
+     *
+     * @param args the archive directory
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("java HexGrid archive <directory>");
+            System.exit(1);
+        }
+        try (GameArchive archive = open(Path.of(args[0]))) {
+            long start = System.nanoTime();
+            long moves = 0;
+            long[] results = new long[3];
+            int[] buffer = new int[1024];
+            Cursor cursor = archive.cursor();
+            while (cursor.next()) {
+                if (cursor.moveCount() > buffer.length) {
+                    buffer = new int[Integer.highestOneBit(cursor.moveCount()) * 2];
+                }
+                moves += cursor.moves(buffer);
+                results[cursor.result() == GameState.NONE ? UNFINISHED : cursor.result()]++;
+            }
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            System.out.printf("%d games, %d moves: %d red wins, %d blue wins, %d unfinished%n",
+                    archive.size(), moves, results[GameState.RED], results[GameState.BLUE], results[UNFINISHED]);
+            System.out.printf("decoded in %.1f ms (%.0f games/s)%n", elapsed / 1e6, archive.size() * 1e9 / elapsed);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.charliezhang.hexoust;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends finished games to a {@link GameArchive} directory. Records go to the
+ * newest segment until it would grow past the segment size, and then a new
+ * segment is started, so no file ever needs rewriting. Opening an existing
+ * archive continues after its last game. Appends are synchronized, so one
+ * writer can be shared by concurrent games.
+ */
+public final class GameArchiveWriter implements AutoCloseable {
+
+    /** Segment size used when none is given. */
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+
+    private final Path directory;
+    private final long segmentBytes;
+
+    private int segment;
+    private FileChannel records;
+    private FileChannel index;
+    private long written;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(1024);
+    private final ByteBuffer offset = ByteBuffer.allocate(Long.BYTES);
+
+    /**
+     * Opens an archive with the default segment size, creating it if needed.
+     *
+     * @param directory the archive directory
+     * @throws IOException if the archive cannot be opened
+     */
+    public GameArchiveWriter(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens an archive, creating it if needed.
+     *
+     * @param directory    the archive directory
+     * @param segmentBytes the size a segment may grow to before a new one is started
+     * @throws IOException if the archive cannot be opened
+     */
+    public GameArchiveWriter(Path directory, long segmentBytes) throws IOException {
+        if (segmentBytes < GameArchive.HEADER_BYTES + 16 || segmentBytes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("segmentBytes out of range");
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        int last = 0;
+        while (Files.exists(GameArchive.segmentPath(directory, last + 1))) {
+            last++;
+        }
+        openSegment(last);
+    }
+
+    /**
+     * Appends the moves played on a game so far, with their capture flags and
+     * the result, which is {@link GameState#NONE} for an unfinished game.
+     *
+     * @param game the game to record
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized void append(GameState game) throws IOException {
+        if (records == null)
+            throw new IllegalStateException("Archive is closed");
+        int moves = game.moveCount();
+        int winner = game.winner();
+
+        // The body is at most 5 bytes per varint plus the fingerprint and result byte
+        int bound = 5 * (moves + 3) + Integer.BYTES + 1;
+        if (buffer.capacity() < bound) {
+            buffer = ByteBuffer.allocate(Integer.highestOneBit(bound) * 2);
+        }
+        buffer.clear();
+        buffer.position(5);
+        putVarint(buffer, game.board().size());
+        buffer.putInt(game.board().fingerprint());
+        buffer.put((byte) (winner == GameState.NONE ? GameArchive.UNFINISHED : winner));
+        putVarint(buffer, moves);
+        for (int i = 0; i < moves; i++) {
+            putVarint(buffer, game.moveAt(i) << 1 | (game.capturesAt(i) > 0 ? 1 : 0));
+        }
+        // Prefix the body with its length, right-aligned against the body
+        int bodyEnd = buffer.position();
+        int length = bodyEnd - 5;
+        int start = 5 - varintSize(length);
+        buffer.position(start);
+        putVarint(buffer, length);
+        buffer.limit(bodyEnd).position(start);
+
+        if (written + buffer.remaining() > segmentBytes && written > GameArchive.HEADER_BYTES) {
+            closeSegment();
+            openSegment(segment + 1);
+        }
+        offset.clear();
+        offset.putLong(written).flip();
+        written += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            records.write(buffer);
+        }
+        while (offset.hasRemaining()) {
+            index.write(offset);
+        }
+    }
+
+    /**
+     * Flushes the current segment to the storage device.
+     *
+     * @throws IOException if the flush fails
+     */
+    public synchronized void flush() throws IOException {
+        if (records != null) {
+            records.force(false);
+            index.force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (records != null) {
+            closeSegment();
+            records = null;
+        }
+    }
+
+    private void openSegment(int number) throws IOException {
+        segment = number;
+        records = FileChannel.open(GameArchive.segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        index = FileChannel.open(GameArchive.indexPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        written = records.size();
+        if (written == 0) {
+            ByteBuffer header = ByteBuffer.allocate(GameArchive.HEADER_BYTES);
+            header.putInt(GameArchive.MAGIC).putInt(GameArchive.VERSION).flip();
+            while (header.hasRemaining()) {
+                records.write(header);
+            }
+            written = GameArchive.HEADER_BYTES;
+        } else {
+            GameArchive.checkHeader(records, GameArchive.segmentPath(directory, number));
+        }
+        records.position(written);
+        // A crash can leave part of an index entry; drop it so later entries stay aligned
+        long entries = index.size() / Long.BYTES;
+        index.truncate(entries * Long.BYTES);
+        index.position(entries * Long.BYTES);
+    }
+
+    private void closeSegment() throws IOException {
+        try {
+            records.close();
+        } finally {
+            index.close();
+        }
+    }
+
+    static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
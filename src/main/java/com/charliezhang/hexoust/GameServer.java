@@ -0,0 +1,403 @@
+package com.charliezhang.hexoust;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hosts any number of independent games for clients on a TCP socket.
+ * <p>
+ * The protocol is one command per line and one response line per command,
+ * starting with {@code OK} or {@code ERR}; commands may be pipelined. Sides
+ * are written {@code red}, {@code blue} or {@code none}, and cells by id in
+ * the order of {@link Board#of(Board.Shape, int)}.
+ * <pre>
+ *   NEW [shape] [radius]   OK id cells               start a game (default hexagon 6)
+ *   PLAY id cell           OK captures side winner   play for the side to move
+ *   UNDO id                OK cell side              take back the last move
+ *   LEGAL id               OK count cell...          the legal moves
+ *   STATE id               OK side winner moves board  board is one of . R B per cell
+ *   END id                 OK                        forget a game
+ *   STATS                  OK games moves mean-micros max-micros
+ *   QUIT                                             close the connection
+ * </pre>
+ * Every connection is served on its own virtual thread. Any connection may
+ * play any game, so two bots can play one game from separate connections, but
+ * a game only lasts until it is ended or the connection that created it
+ * closes, so clients that disconnect cannot fill the server with abandoned
+ * games. Each game has its own lock and its own {@link GameState}; games share
+ * only their immutable {@link Board}.
+ */
+public final class GameServer implements AutoCloseable {
+
+    /** Port used when none is given. */
+    public static final int DEFAULT_PORT = 7777;
+
+    /** Largest board radius a client may ask for. */
+    static final int MAX_RADIUS = 100;
+
+    private static final String[] SIDES = {"red", "blue"};
+
+    /** One hosted game. */
+    private static final class Session {
+        final GameState state;
+        final ReentrantLock lock = new ReentrantLock();
+        final int[] moves;
+
+        Session(Board board) {
+            this.state = new GameState(board);
+            this.moves = new int[board.size()];
+        }
+    }
+
+    private final ServerSocket socket;
+    private final int maxGames;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    private final ConcurrentHashMap<Long, Session> games = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Board> boards = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /** Games hosted or reserved, so that concurrent NEW commands never exceed maxGames. */
+    private final AtomicInteger hosted = new AtomicInteger();
+
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder moveNanos = new LongAdder();
+    private final AtomicLong maxMoveNanos = new AtomicLong();
+
+    /**
+     * Binds a server socket. Nothing is served until {@link #serve()} is called.
+     *
+     * @param address  the address to listen on, usually the loopback address
+     * @param port     the port, or 0 for any free port
+     * @param maxGames the most games hosted at once
+     * @throws IOException if the socket cannot be bound
+     */
+    public GameServer(InetAddress address, int port, int maxGames) throws IOException {
+        if (maxGames < 1)
+            throw new IllegalArgumentException("maxGames must be positive");
+        this.maxGames = maxGames;
+        this.socket = new ServerSocket();
+        this.socket.bind(new InetSocketAddress(address, port), 1024);
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int port() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * @return the number of games currently hosted
+     */
+    public int games() {
+        return games.size();
+    }
+
+    /**
+     * Accepts connections until the server is closed, serving each on its own
+     * virtual thread.
+     *
+     * @throws IOException if accepting fails for any reason other than a close
+     */
+    public void serve() throws IOException {
+        while (!socket.isClosed()) {
+            Socket client;
+            try {
+                client = socket.accept();
+            } catch (SocketException e) {
+                if (socket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            client.setTcpNoDelay(true);
+            clients.add(client);
+            connections.execute(() -> handle(client));
+        }
+    }
+
+    private void handle(Socket client) {
+        // Games this connection created, ended when it closes
+        Set<Long> created = new HashSet<>();
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().equalsIgnoreCase("QUIT")) {
+                    break;
+                }
+                out.write(execute(line, created));
+                out.write('\n');
+                // Answer a pipelined batch with one write
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // The client went away
+        } finally {
+            clients.remove(client);
+            for (long id : created) {
+                end(id);
+            }
+        }
+    }
+
+    /**
+     * Runs one command outside any connection, so games it creates last until
+     * they are ended.
+     *
+     * @param line the command
+     * @return the response
+     */
+    String execute(String line) {
+        return execute(line, null);
+    }
+
+    /**
+     * Runs one command and returns its response line, without the line break.
+     *
+     * @param line    the command
+     * @param created the ids of the games the connection created, or null
+     * @return the response
+     */
+    private String execute(String line, Set<Long> created) {
+        String[] words = line.trim().split("\\s+");
+        try {
+            switch (words[0].toUpperCase(Locale.ROOT)) {
+                case "NEW":
+                    return newGame(words, created);
+                case "PLAY":
+                    return play(session(words, 3), Integer.parseInt(words[2]));
+                case "UNDO":
+                    return undo(session(words, 2));
+                case "LEGAL":
+                    return legal(session(words, 2));
+                case "STATE":
+                    return state(session(words, 2));
+                case "END":
+                    long id = parseId(words, 2);
+                    if (!end(id))
+                        throw new IllegalArgumentException("No game " + id);
+                    if (created != null) {
+                        created.remove(id);
+                    }
+                    return "OK";
+                case "STATS":
+                    return stats();
+                default:
+                    return "ERR Unknown command: " + words[0];
+            }
+        } catch (NumberFormatException e) {
+            return "ERR Not a number: " + e.getMessage();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    private String newGame(String[] words, Set<Long> created) {
+        Board.Shape shape = Board.Shape.HEXAGON;
+        int radius = 6;
+        if (words.length > 1) {
+            try {
+                shape = Board.Shape.valueOf(words[1].toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown shape: " + words[1]);
+            }
+        }
+        if (words.length > 2) {
+            radius = Integer.parseInt(words[2]);
+        }
+        if (radius < 0 || radius > MAX_RADIUS)
+            throw new IllegalArgumentException("Radius must be between 0 and " + MAX_RADIUS);
+        if (hosted.getAndUpdate(n -> n < maxGames ? n + 1 : n) >= maxGames)
+            throw new IllegalStateException("Server is full");
+
+        Board.Shape chosen = shape;
+        int r = radius;
+        // Boards are immutable, so every game of one size shares one
+        Board board = boards.computeIfAbsent((long) shape.ordinal() << 32 | radius, k -> Board.of(chosen, r));
+        long id = nextId.getAndIncrement();
+        games.put(id, new Session(board));
+        if (created != null) {
+            created.add(id);
+        }
+        return "OK " + id + " " + board.size();
+    }
+
+    /**
+     * Forgets a game and frees its slot.
+     *
+     * @return false if there was no such game
+     */
+    private boolean end(long id) {
+        if (games.remove(id) == null) {
+            return false;
+        }
+        hosted.decrementAndGet();
+        return true;
+    }
+
+    private String play(Session session, int cell) {
+        long start = System.nanoTime();
+        session.lock.lock();
+        try {
+            GameState state = session.state;
+            if (cell < 0 || cell >= state.board().size())
+                throw new IllegalArgumentException("No cell " + cell);
+            if (state.isTerminal())
+                throw new IllegalStateException("Game is over");
+            if (!state.isLegal(cell))
+                throw new IllegalArgumentException("Illegal move " + cell);
+            int captured = state.play(cell);
+            return "OK " + captured + " " + SIDES[state.sideToMove()] + " " + sideName(state.winner());
+        } finally {
+            session.lock.unlock();
+            long elapsed = System.nanoTime() - start;
+            moves.increment();
+            moveNanos.add(elapsed);
+            maxMoveNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    private String undo(Session session) {
+        session.lock.lock();
+        try {
+            int cell = session.state.undo();
+            return "OK " + cell + " " + SIDES[session.state.sideToMove()];
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    private String legal(Session session) {
+        session.lock.lock();
+        try {
+            GameState state = session.state;
+            int count = state.isTerminal() ? 0 : state.legalMoves(session.moves);
+            StringBuilder response = new StringBuilder(8 + 5 * count).append("OK ").append(count);
+            for (int i = 0; i < count; i++) {
+                response.append(' ').append(session.moves[i]);
+            }
+            return response.toString();
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    private String state(Session session) {
+        session.lock.lock();
+        try {
+            GameState state = session.state;
+            int cells = state.board().size();
+            StringBuilder response = new StringBuilder(32 + cells)
+                    .append("OK ").append(SIDES[state.sideToMove()])
+                    .append(' ').append(sideName(state.winner()))
+                    .append(' ').append(state.moveCount()).append(' ');
+            for (int cell = 0; cell < cells; cell++) {
+                int owner = state.owner(cell);
+                response.append(owner == GameState.RED ? 'R' : owner == GameState.BLUE ? 'B' : '.');
+            }
+            return response.toString();
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    private String stats() {
+        long count = moves.sum();
+        double mean = count == 0 ? 0 : moveNanos.sum() / 1e3 / count;
+        return String.format(Locale.ROOT, "OK %d %d %.2f %.2f", games.size(), count, mean, maxMoveNanos.get() / 1e3);
+    }
+
+    private Session session(String[] words, int arity) {
+        long id = parseId(words, arity);
+        Session session = games.get(id);
+        if (session == null)
+            throw new IllegalArgumentException("No game " + id);
+        return session;
+    }
+
+    private static long parseId(String[] words, int arity) {
+        if (words.length != arity)
+            throw new IllegalArgumentException("Expected " + (arity - 1) + " argument(s)");
+        return Long.parseLong(words[1]);
+    }
+
+    private static String sideName(int side) {
+        return side == GameState.NONE ? "none" : SIDES[side];
+    }
+
+    /**
+     * Stops accepting connections and closes every open one. Hosted games are discarded.
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+        connections.close();
+        games.clear();
+        hosted.set(0);
+    }
+
+    /**
+     * Runs a server until the process is stopped.
+     *
+     * @param args {@code --port=<port>}, {@code --bind=<address>} and {@code --max-games=<n>}
+     */
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT, maxGames = 100_000;
+        String bind = "127.0.0.1";
+        try {
+            for (String arg : args) {
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith("--port=")) {
+                    port = Integer.parseInt(value);
+                } else if (arg.startsWith("--bind=")) {
+                    bind = value;
+                } else if (arg.startsWith("--max-games=")) {
+                    maxGames = Integer.parseInt(value);
+                } else {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("java HexGrid server [--port=<port>] [--bind=<address>] [--max-games=<n>]");
+            System.exit(1);
+        }
+        try (GameServer server = new GameServer(InetAddress.getByName(bind), port, maxGames)) {
+            System.out.println("Serving HexOust games on " + bind + ":" + server.port());
+            server.serve();
+        } catch (IOException e) {
+            System.err.println("Server error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
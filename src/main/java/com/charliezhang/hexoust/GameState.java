@@ -0,0 +1,969 @@
+package com.charliezhang.hexoust;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A headless, Swing-free implementation of the HexOust rules on a {@link Board}.
+ * <p>
+ * Red moves first. A placement that touches no friendly stone is always legal and
+ * passes the turn. A placement that touches a friendly stone joins that group, and
+ * is only legal if the joined group touches at least one enemy stone; every enemy
+ * stone adjacent to the group is then captured and the mover plays again. A player
+ * whose stones have all been captured loses once both players have placed. A
+ * player left without any legal placement also loses.
+ * <p>
+ * Occupancy is held as one bitboard per player, indexed by cell id, so testing,
+ * placing and removing a stone are single word operations and stone counts are
+ * popcounts.
+ * <p>
+ * Groups are tracked incrementally with a union-find over the stones, together
+ * with a circular member list and a count of adjacent enemy stones per group, so
+ * legality is decided from at most six group roots without walking any group.
+ * Every write to the group tables is recorded on a trail, which lets
+ * {@link #undo()} roll a move back in time proportional to what the move changed.
+ * Moves taken back stay on a redo stack until a different move is played, and
+ * {@link #redo()} replays them without copying the board.
+ * <p>
+ * A 64-bit {@link Zobrist} hash of the stones and the side to move is maintained
+ * on every placement and capture. Because a capture keeps the turn, the same
+ * stones with a different side to move hash differently.
+ * <p>
+ * Instances are not thread-safe; use {@link #copy()} to hand a position to another thread.
+ */
+public final class GameState {
+
+    /** The red player, who moves first. */
+    public static final int RED = 0;
+
+    /** The blue player. */
+    public static final int BLUE = 1;
+
+    /** Marks an empty cell, or no winner. */
+    public static final int NONE = -1;
+
+    private final Board board;
+
+    /** The board's neighbour table, six slots per cell, -1 for off-board. */
+    private final int[] neighbors;
+
+    /** Number of cells on the board. */
+    private final int size;
+
+    /** Occupancy bitboards, one per player: bit {@code cell & 63} of word {@code cell >>> 6}. */
+    private final long[][] stones;
+
+    /** Zobrist keys of the board's stones, indexed by {@code cell * 2 + player}. */
+    private final long[] keys;
+
+    private int side = RED;
+    private int placements;
+    private int winner = NONE;
+    private long hash;
+
+    /*
+     * Group tables, packed into one array so that a single trail can undo them.
+     * For a stone at cell c, uf[parentBase + c] is its union-find parent and
+     * uf[nextBase + c] links the stones of its group into a circular list. For a
+     * group root r, uf[sizeBase + r] is the number of stones and uf[edgesBase + r]
+     * the number of (stone, adjacent enemy stone) pairs. Entries for empty cells
+     * are meaningless.
+     */
+    private final int[] uf;
+    private final int parentBase;
+    private final int sizeBase;
+    private final int nextBase;
+    private final int edgesBase;
+
+    /** Undo trail of (slot, previous value) pairs for writes to {@code uf}. */
+    private int[] trail = new int[256];
+    private int trailSize;
+
+    /** Cells captured by each move on the move stack, in move order. */
+    private int[] captureStack = new int[64];
+    private int captureStackSize;
+
+    /** One frame per move on the move stack: cell, side, winner, trail mark, capture mark. */
+    private int[] frames = new int[5 * 32];
+    private long[] hashes = new long[32];
+    private int moveCount;
+
+    /** Cells of the moves taken back by {@link #undo()}, the next to redo last. */
+    private int[] redoCells = new int[32];
+    private int redoCount;
+
+    /** Scratch space reused between moves to avoid allocation. */
+    private final int[] queue;
+    private final int[] captures;
+    private final long[] captureMask;
+    private final long[] friendlyAdjacent;
+    private final int[] roots = new int[Board.DIRECTIONS];
+    private final int[] seen;
+    private int captureCount;
+    private int epoch;
+
+    /** Work counters for instrumentation, added to in bulk once per loop. */
+    private long neighborReads;
+    private long stonesScanned;
+
+    /**
+     * Creates an empty game on the given board with Red to move.
+     *
+     * @param board the board to play on
+     */
+    public GameState(Board board) {
+        this.board = board;
+        this.neighbors = board.neighborTable();
+        this.keys = board.zobristKeys();
+        this.size = board.size();
+        this.stones = new long[2][words(size)];
+        this.uf = new int[4 * size];
+        this.parentBase = 0;
+        this.sizeBase = size;
+        this.nextBase = 2 * size;
+        this.edgesBase = 3 * size;
+        this.queue = new int[size];
+        this.captures = new int[size];
+        this.captureMask = new long[words(size)];
+        this.friendlyAdjacent = new long[words(size)];
+        this.seen = new int[size];
+    }
+
+    private GameState(GameState other) {
+        this.board = other.board;
+        this.neighbors = other.neighbors;
+        this.keys = other.keys;
+        this.size = other.size;
+        this.stones = new long[][] {other.stones[RED].clone(), other.stones[BLUE].clone()};
+        this.uf = other.uf.clone();
+        this.parentBase = other.parentBase;
+        this.sizeBase = other.sizeBase;
+        this.nextBase = other.nextBase;
+        this.edgesBase = other.edgesBase;
+        this.queue = new int[size];
+        this.captures = new int[size];
+        this.captureMask = new long[words(size)];
+        this.friendlyAdjacent = new long[words(size)];
+        this.seen = new int[size];
+        this.side = other.side;
+        this.placements = other.placements;
+        this.winner = other.winner;
+        this.hash = other.hash;
+    }
+
+    /**
+     * Sets up a position from its stones and the side to move, with an empty
+     * move stack. The number of placements is taken to be the number of stones,
+     * which only matters before the second stone: a position with one side
+     * wiped out is over unless it is the first move of the game.
+     *
+     * @param board the board to play on
+     * @param red   Red's stones, one bit per cell id
+     * @param blue  Blue's stones, one bit per cell id
+     * @param side  the player to move
+     * @return the position
+     */
+    static GameState setUp(Board board, long[] red, long[] blue, int side) {
+        GameState state = new GameState(board);
+        long[][] bits = {red, blue};
+        for (int player = RED; player <= BLUE; player++) {
+            for (int w = 0; w < bits[player].length; w++) {
+                for (long word = bits[player][w]; word != 0; word &= word - 1) {
+                    state.addStone(player, (w << 6) + Long.numberOfTrailingZeros(word));
+                }
+            }
+        }
+        state.placements = state.stoneCount(RED) + state.stoneCount(BLUE);
+        if (state.placements > 1) {
+            if (state.isEmpty(BLUE)) {
+                state.winner = RED;
+            } else if (state.isEmpty(RED)) {
+                state.winner = BLUE;
+            }
+        }
+        if (side == BLUE) {
+            state.side = BLUE;
+            state.hash ^= Zobrist.SIDE;
+        }
+        state.clearHistory();
+        return state;
+    }
+
+    /**
+     * Returns an independent copy of this position. The copy starts with an
+     * empty move stack, so it cannot undo moves made before it was taken.
+     *
+     * @return the copy
+     */
+    public GameState copy() {
+        return new GameState(this);
+    }
+
+    /**
+     * @return the board this game is played on
+     */
+    public Board board() {
+        return board;
+    }
+
+    /**
+     * @return the player to move, RED or BLUE
+     */
+    public int sideToMove() {
+        return side;
+    }
+
+    /**
+     * @return the number of placements made so far
+     */
+    public int placements() {
+        return placements;
+    }
+
+    /**
+     * @return the Zobrist hash of the stones on the board and the side to move
+     */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * @param cell the cell id
+     * @return the owner of the cell: RED, BLUE or NONE
+     */
+    public int owner(int cell) {
+        if (has(RED, cell)) {
+            return RED;
+        }
+        return has(BLUE, cell) ? BLUE : NONE;
+    }
+
+    /**
+     * @param player RED or BLUE
+     * @return the number of stones the player has on the board
+     */
+    public int stoneCount(int player) {
+        int count = 0;
+        for (long word : stones[player]) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the first cell at or after {@code from} that holds one of the
+     * player's stones, for iterating a player's stones in cell id order.
+     *
+     * @param player RED or BLUE
+     * @param from   the first cell id to consider
+     * @return the cell id, or -1 if there is none
+     */
+    public int nextStone(int player, int from) {
+        long[] bits = stones[player];
+        int w = from >>> 6;
+        if (w >= bits.length) {
+            return -1;
+        }
+        long word = bits[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == bits.length) {
+                return -1;
+            }
+            word = bits[w];
+        }
+    }
+
+    /**
+     * Returns a copy of a player's bitboard: bit {@code cell & 63} of word
+     * {@code cell >>> 6} is set for every cell holding one of the player's stones.
+     *
+     * @param player RED or BLUE
+     * @return the copy
+     */
+    public long[] stoneBits(int player) {
+        return stones[player].clone();
+    }
+
+    /**
+     * Returns the root of the group containing a stone. Two stones are in the
+     * same group exactly when they have the same root.
+     *
+     * @param cell a cell holding a stone
+     * @return the cell id of the group's root
+     */
+    public int group(int cell) {
+        int parent;
+        while ((parent = uf[parentBase + cell]) != cell) {
+            cell = parent;
+        }
+        return cell;
+    }
+
+    /**
+     * @param cell a cell holding a stone
+     * @return the number of stones in that stone's group
+     */
+    public int groupSize(int cell) {
+        return uf[sizeBase + group(cell)];
+    }
+
+    /**
+     * @param cell a cell holding a stone
+     * @return the number of (stone, adjacent enemy stone) pairs along that stone's group
+     */
+    public int groupEnemyContacts(int cell) {
+        return uf[edgesBase + group(cell)];
+    }
+
+    /**
+     * Checks whether the player to move may place a stone on the given cell.
+     *
+     * @param cell the cell id
+     * @return true if the placement is legal
+     */
+    public boolean isLegal(int cell) {
+        if (winner != NONE || isOccupied(cell)) {
+            return false;
+        }
+        neighborReads += Board.DIRECTIONS;
+        return wouldCapture(cell, side) >= 0;
+    }
+
+    /**
+     * Fills the given buffer with every legal placement for the player to move,
+     * in ascending cell order. Empty cells with no friendly neighbour are taken
+     * a whole bitboard word at a time; only the empty cells next to a friendly
+     * group are examined one by one.
+     *
+     * @param out a buffer of at least {@code board().size()} entries
+     * @return the number of legal moves written
+     */
+    public int legalMoves(int[] out) {
+        if (winner != NONE) {
+            return 0;
+        }
+        markFriendlyNeighbors(side);
+        long[] red = stones[RED];
+        long[] blue = stones[BLUE];
+        int count = 0;
+        for (int w = 0; w < friendlyAdjacent.length; w++) {
+            long empty = ~(red[w] | blue[w]) & wordMask(w);
+            long legal = empty & ~friendlyAdjacent[w];
+            neighborReads += (long) Board.DIRECTIONS * Long.bitCount(empty & friendlyAdjacent[w]);
+            for (long joins = empty & friendlyAdjacent[w]; joins != 0; joins &= joins - 1) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(joins);
+                if (wouldCapture(cell, side) > 0) {
+                    legal |= joins & -joins;
+                }
+            }
+            for (; legal != 0; legal &= legal - 1) {
+                out[count++] = (w << 6) + Long.numberOfTrailingZeros(legal);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return every legal placement for the player to move
+     */
+    public int[] legalMoves() {
+        int[] out = new int[size];
+        return Arrays.copyOf(out, legalMoves(out));
+    }
+
+    /**
+     * Places a stone for the player to move and applies any captures. The turn
+     * passes to the opponent unless the placement captured.
+     *
+     * @param cell the cell id
+     * @return the number of enemy stones captured
+     * @throws IllegalStateException    if the game is already over
+     * @throws IllegalArgumentException if the placement is illegal
+     */
+    public int play(int cell) {
+        if (winner != NONE)
+            throw new IllegalStateException("Game is over");
+        if (isOccupied(cell))
+            throw new IllegalArgumentException("Cell " + cell + " is occupied");
+        if (wouldCapture(cell, side) < 0)
+            throw new IllegalArgumentException("Placement on " + cell + " joins a group that touches no enemy stone");
+        neighborReads += Board.DIRECTIONS;
+
+        // Replaying the next undone move keeps the rest of the redo stack
+        if (redoCount > 0) {
+            redoCount = redoCells[redoCount - 1] == cell ? redoCount - 1 : 0;
+        }
+        pushFrame(cell);
+        int root = addStone(side, cell);
+        placements++;
+
+        int captured = 0;
+        if (uf[sizeBase + root] > 1) {
+            collectCaptures(root, side ^ 1);
+            captured = captureCount;
+            for (int i = 0; i < captured; i++) {
+                pushCapture(captures[i]);
+            }
+            removeStones(side ^ 1);
+        }
+
+        if (placements > 2) {
+            if (isEmpty(BLUE)) {
+                winner = RED;
+            } else if (isEmpty(RED)) {
+                winner = BLUE;
+            }
+        }
+        if (captured == 0) {
+            side ^= 1;
+            hash ^= Zobrist.SIDE;
+        }
+        return captured;
+    }
+
+    /**
+     * @return the number of moves that can be taken back with {@link #undo()}
+     */
+    public int moveCount() {
+        return moveCount;
+    }
+
+    /**
+     * @return how many neighbour table entries this position has read, for
+     *         instrumentation; the count only ever grows
+     */
+    public long neighborReads() {
+        return neighborReads;
+    }
+
+    /**
+     * @return how many stones group walks and capture rebuilds of this position
+     *         have visited, for instrumentation; the count only ever grows
+     */
+    public long stonesScanned() {
+        return stonesScanned;
+    }
+
+    /**
+     * Returns a move of the game so far, for recording or replaying it.
+     *
+     * @param index the move number, from 0 to {@code moveCount() - 1}
+     * @return the cell the move was played on
+     * @throws IndexOutOfBoundsException if there is no such move
+     */
+    public int moveAt(int index) {
+        Objects.checkIndex(index, moveCount);
+        return frames[5 * index];
+    }
+
+    /**
+     * Returns how many stones a move of the game so far captured.
+     *
+     * @param index the move number, from 0 to {@code moveCount() - 1}
+     * @return the number of enemy stones the move removed
+     * @throws IndexOutOfBoundsException if there is no such move
+     */
+    public int capturesAt(int index) {
+        Objects.checkIndex(index, moveCount);
+        int end = index + 1 < moveCount ? frames[5 * (index + 1) + 4] : captureStackSize;
+        return end - frames[5 * index + 4];
+    }
+
+    /**
+     * Takes back the last move made with {@link #play(int)}, restoring the placed
+     * cell, every captured stone, the group tables and the turn.
+     *
+     * @return the cell of the move that was taken back
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public int undo() {
+        if (moveCount == 0)
+            throw new IllegalStateException("No move to undo");
+        int f = 5 * --moveCount;
+        int cell = frames[f];
+        int mover = frames[f + 1];
+        int captureMark = frames[f + 4];
+
+        while (trailSize > frames[f + 3]) {
+            trailSize -= 2;
+            uf[trail[trailSize]] = trail[trailSize + 1];
+        }
+        stones[mover][cell >>> 6] &= ~(1L << cell);
+        long[] enemy = stones[mover ^ 1];
+        for (int i = captureMark; i < captureStackSize; i++) {
+            int c = captureStack[i];
+            enemy[c >>> 6] |= 1L << c;
+        }
+        captureStackSize = captureMark;
+        side = mover;
+        winner = frames[f + 2];
+        hash = hashes[moveCount];
+        placements--;
+
+        if (redoCount == redoCells.length) {
+            redoCells = Arrays.copyOf(redoCells, redoCount * 2);
+        }
+        redoCells[redoCount++] = cell;
+        return cell;
+    }
+
+    /**
+     * @return the number of moves that can be replayed with {@link #redo()}
+     */
+    public int redoCount() {
+        return redoCount;
+    }
+
+    /**
+     * Replays the last move taken back with {@link #undo()}. Playing any other
+     * move in the meantime discards every move that could be redone.
+     *
+     * @return the cell of the move that was replayed
+     * @throws IllegalStateException if there is no move to redo
+     */
+    public int redo() {
+        if (redoCount == 0)
+            throw new IllegalStateException("No move to redo");
+        int cell = redoCells[redoCount - 1];
+        play(cell);
+        return cell;
+    }
+
+    /**
+     * @return true if the game has been won by either player
+     */
+    public boolean isTerminal() {
+        return winner() != NONE;
+    }
+
+    /**
+     * @return the winning player, or NONE while the game is still in progress
+     */
+    public int winner() {
+        if (winner != NONE) {
+            return winner;
+        }
+        return hasLegalMove() ? NONE : side ^ 1;
+    }
+
+    /**
+     * Clears the board and gives the move back to Red.
+     */
+    public void reset() {
+        Arrays.fill(stones[RED], 0L);
+        Arrays.fill(stones[BLUE], 0L);
+        side = RED;
+        placements = 0;
+        winner = NONE;
+        hash = 0L;
+        clearHistory();
+    }
+
+    /**
+     * Puts a stone on the board without applying any rules, for setting up
+     * positions. This clears the move stack.
+     *
+     * @param cell   the cell id
+     * @param player RED or BLUE
+     * @return true if the cell was empty
+     */
+    public boolean place(int cell, int player) {
+        if (isOccupied(cell)) {
+            return false;
+        }
+        addStone(player, cell);
+        clearHistory();
+        return true;
+    }
+
+    /**
+     * Removes a stone from the board without applying any rules. This clears
+     * the move stack.
+     *
+     * @param cell the cell id
+     * @return true if the cell held a stone
+     */
+    public boolean clear(int cell) {
+        int player = owner(cell);
+        if (player == NONE) {
+            return false;
+        }
+        captures[0] = cell;
+        captureCount = 1;
+        removeStones(player);
+        clearHistory();
+        return true;
+    }
+
+    /**
+     * Captures every enemy stone adjacent to the group containing the given cell,
+     * treating that cell as belonging to the player. Nothing is captured if the
+     * group is a single stone. This clears the move stack.
+     *
+     * @param cell   the cell of the recently placed stone
+     * @param player the player who owns the group
+     * @return the number of enemy stones captured
+     */
+    int captureFrom(int cell, int player) {
+        if (scanGroup(cell, player) < 2) {
+            return 0;
+        }
+        int captured = captureCount;
+        removeStones(player ^ 1);
+        clearHistory();
+        return captured;
+    }
+
+    private boolean hasLegalMove() {
+        markFriendlyNeighbors(side);
+        long[] red = stones[RED];
+        long[] blue = stones[BLUE];
+        for (int w = 0; w < friendlyAdjacent.length; w++) {
+            long empty = ~(red[w] | blue[w]) & wordMask(w);
+            if ((empty & ~friendlyAdjacent[w]) != 0) {
+                return true;
+            }
+            for (long joins = empty & friendlyAdjacent[w]; joins != 0; joins &= joins - 1) {
+                neighborReads += Board.DIRECTIONS;
+                if (wouldCapture((w << 6) + Long.numberOfTrailingZeros(joins), side) > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets {@code friendlyAdjacent} to the cells next to at least one of the player's stones.
+     */
+    private void markFriendlyNeighbors(int player) {
+        Arrays.fill(friendlyAdjacent, 0L);
+        long[] own = stones[player];
+        for (int w = 0; w < own.length; w++) {
+            neighborReads += (long) Board.DIRECTIONS * Long.bitCount(own[w]);
+            for (long bits = own[w]; bits != 0; bits &= bits - 1) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(bits);
+                for (int i = cell * Board.DIRECTIONS, end = i + Board.DIRECTIONS; i < end; i++) {
+                    int nb = neighbors[i];
+                    if (nb >= 0) {
+                        friendlyAdjacent[nb >>> 6] |= 1L << nb;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the bits of word {@code w} that correspond to cells on the board
+     */
+    private long wordMask(int w) {
+        int remaining = size - (w << 6);
+        return remaining >= 64 ? -1L : (1L << remaining) - 1;
+    }
+
+    /**
+     * Decides a placement on an empty cell from the group roots around it.
+     *
+     * @return 0 for a placement that touches no friendly stone, a positive number
+     *         of enemy contacts for a capturing placement, or -1 if it is illegal
+     */
+    private int wouldCapture(int cell, int player) {
+        long[] own = stones[player];
+        long[] enemy = stones[player ^ 1];
+        int rootCount = 0;
+        int contacts = 0;
+        for (int i = cell * Board.DIRECTIONS, end = i + Board.DIRECTIONS; i < end; i++) {
+            int nb = neighbors[i];
+            if (nb < 0) {
+                continue;
+            }
+            long bit = 1L << nb;
+            if ((enemy[nb >>> 6] & bit) != 0) {
+                contacts++;
+            } else if ((own[nb >>> 6] & bit) != 0) {
+                int root = group(nb);
+                boolean known = false;
+                for (int k = 0; k < rootCount; k++) {
+                    known |= roots[k] == root;
+                }
+                if (!known) {
+                    roots[rootCount++] = root;
+                    contacts += uf[edgesBase + root];
+                }
+            }
+        }
+        if (rootCount == 0) {
+            return 0;
+        }
+        return contacts > 0 ? contacts : -1;
+    }
+
+    /**
+     * Adds a stone to the bitboards and the group tables, merging it with the
+     * adjacent friendly groups.
+     *
+     * @return the root of the stone's group
+     */
+    private int addStone(int player, int cell) {
+        long[] own = stones[player];
+        long[] enemy = stones[player ^ 1];
+        own[cell >>> 6] |= 1L << cell;
+        hash ^= keys[cell * 2 + player];
+        neighborReads += 2 * Board.DIRECTIONS;
+
+        int contacts = 0;
+        for (int i = cell * Board.DIRECTIONS, end = i + Board.DIRECTIONS; i < end; i++) {
+            int nb = neighbors[i];
+            if (nb >= 0 && (enemy[nb >>> 6] & (1L << nb)) != 0) {
+                contacts++;
+                int root = group(nb);
+                write(edgesBase + root, uf[edgesBase + root] + 1);
+            }
+        }
+        write(parentBase + cell, cell);
+        write(sizeBase + cell, 1);
+        write(nextBase + cell, cell);
+        write(edgesBase + cell, contacts);
+
+        int root = cell;
+        for (int i = cell * Board.DIRECTIONS, end = i + Board.DIRECTIONS; i < end; i++) {
+            int nb = neighbors[i];
+            if (nb >= 0 && (own[nb >>> 6] & (1L << nb)) != 0) {
+                root = union(root, group(nb));
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Merges two groups by size and splices their member lists.
+     *
+     * @return the root of the merged group
+     */
+    private int union(int a, int b) {
+        if (a == b) {
+            return a;
+        }
+        if (uf[sizeBase + a] < uf[sizeBase + b]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        write(parentBase + b, a);
+        write(sizeBase + a, uf[sizeBase + a] + uf[sizeBase + b]);
+        write(edgesBase + a, uf[edgesBase + a] + uf[edgesBase + b]);
+        int nextA = uf[nextBase + a];
+        write(nextBase + a, uf[nextBase + b]);
+        write(nextBase + b, nextA);
+        return a;
+    }
+
+    /**
+     * Collects every enemy stone adjacent to a group into {@code captures}.
+     */
+    private void collectCaptures(int root, int enemyPlayer) {
+        long[] enemy = stones[enemyPlayer];
+        nextEpoch();
+        captureCount = 0;
+        int member = root;
+        int members = 0;
+        do {
+            members++;
+            for (int i = member * Board.DIRECTIONS, end = i + Board.DIRECTIONS; i < end; i++) {
+                int nb = neighbors[i];
+                if (nb >= 0 && seen[nb] != epoch && (enemy[nb >>> 6] & (1L << nb)) != 0) {
+                    seen[nb] = epoch;
+                    captures[captureCount++] = nb;
+                }
+            }
+            member = uf[nextBase + member];
+        } while (member != root);
+        stonesScanned += members;
+        neighborReads += (long) Board.DIRECTIONS * members;
+    }
+
+    /**
+     * Removes the {@code captureCount} stones in {@code captures}, all owned by
+     * the given player, and rebuilds the groups they belonged to from the stones
+     * that remain.
+     */
+    private void removeStones(int player) {
+        long[] bits = stones[player];
+        long[] other = stones[player ^ 1];
+
+        // Every opposing group loses one contact per removed neighbour
+        for (int i = 0; i < captureCount; i++) {
+            int cell = captures[i];
+            for (int j = cell * Board.DIRECTIONS, end = j + Board.DIRECTIONS; j < end; j++) {
+                int nb = neighbors[j];
+                if (nb >= 0 && (other[nb >>> 6] & (1L << nb)) != 0) {
+                    int root = group(nb);
+                    write(edgesBase + root, uf[edgesBase + root] - 1);
+                }
+            }
+        }
+
+        // Gather the surviving members of every group that lost a stone
+        nextEpoch();
+        int survivors = 0;
+        for (int i = 0; i < captureCount; i++) {
+            int cell = captures[i];
+            captureMask[cell >>> 6] |= 1L << cell;
+            hash ^= keys[cell * 2 + player];
+        }
+        for (int i = 0; i < captureCount; i++) {
+            int root = group(captures[i]);
+            if (seen[root] == epoch) {
+                continue;
+            }
+            seen[root] = epoch;
+            int member = root;
+            do {
+                if ((captureMask[member >>> 6] & (1L << member)) == 0) {
+                    queue[survivors++] = member;
+                }
+                member = uf[nextBase + member];
+            } while (member != root);
+        }
+
+        for (int w = 0; w < bits.length; w++) {
+            bits[w] &= ~captureMask[w];
+            captureMask[w] = 0;
+        }
+        // Captured stones are read once for contacts, survivors twice to rebuild
+        stonesScanned += captureCount + survivors;
+        neighborReads += (long) Board.DIRECTIONS * (captureCount + 2L * survivors);
+        captureCount = 0;
+
+        // Rebuild the survivors as singletons, then merge them back together
+        for (int i = 0; i < survivors; i++) {
+            int cell = queue[i];
+            int contacts = 0;
+            for (int j = cell * Board.DIRECTIONS, end = j + Board.DIRECTIONS; j < end; j++) {
+                int nb = neighbors[j];
+                if (nb >= 0 && (other[nb >>> 6] & (1L << nb)) != 0) {
+                    contacts++;
+                }
+            }
+            write(parentBase + cell, cell);
+            write(sizeBase + cell, 1);
+            write(nextBase + cell, cell);
+            write(edgesBase + cell, contacts);
+        }
+        for (int i = 0; i < survivors; i++) {
+            int cell = queue[i];
+            for (int j = cell * Board.DIRECTIONS, end = j + Board.DIRECTIONS; j < end; j++) {
+                int nb = neighbors[j];
+                if (nb > cell && (bits[nb >>> 6] & (1L << nb)) != 0) {
+                    union(group(cell), group(nb));
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the group the player would own at the given cell by flood fill,
+     * and every enemy stone adjacent to it into {@code captures}. Unlike the
+     * group tables this works whatever the cell currently holds.
+     *
+     * @return the size of the group
+     */
+    private int scanGroup(int cell, int player) {
+        nextEpoch();
+        long[] own = stones[player];
+        long[] enemy = stones[player ^ 1];
+        int head = 0;
+        int tail = 0;
+        captureCount = 0;
+        queue[tail++] = cell;
+        seen[cell] = epoch;
+        while (head < tail) {
+            int current = queue[head++];
+            for (int i = current * Board.DIRECTIONS, end = i + Board.DIRECTIONS; i < end; i++) {
+                int nb = neighbors[i];
+                if (nb < 0 || seen[nb] == epoch) {
+                    continue;
+                }
+                long bit = 1L << nb;
+                if ((own[nb >>> 6] & bit) != 0) {
+                    seen[nb] = epoch;
+                    queue[tail++] = nb;
+                } else if ((enemy[nb >>> 6] & bit) != 0) {
+                    seen[nb] = epoch;
+                    captures[captureCount++] = nb;
+                }
+            }
+        }
+        stonesScanned += tail;
+        neighborReads += (long) Board.DIRECTIONS * tail;
+        return tail;
+    }
+
+    private void write(int slot, int value) {
+        if (trailSize + 2 > trail.length) {
+            trail = Arrays.copyOf(trail, trail.length * 2);
+        }
+        trail[trailSize++] = slot;
+        trail[trailSize++] = uf[slot];
+        uf[slot] = value;
+    }
+
+    private void pushFrame(int cell) {
+        if (5 * (moveCount + 1) > frames.length) {
+            frames = Arrays.copyOf(frames, frames.length * 2);
+            hashes = Arrays.copyOf(hashes, hashes.length * 2);
+        }
+        hashes[moveCount] = hash;
+        int f = 5 * moveCount++;
+        frames[f] = cell;
+        frames[f + 1] = side;
+        frames[f + 2] = winner;
+        frames[f + 3] = trailSize;
+        frames[f + 4] = captureStackSize;
+    }
+
+    private void pushCapture(int cell) {
+        if (captureStackSize == captureStack.length) {
+            captureStack = Arrays.copyOf(captureStack, captureStack.length * 2);
+        }
+        captureStack[captureStackSize++] = cell;
+    }
+
+    private void clearHistory() {
+        moveCount = 0;
+        redoCount = 0;
+        trailSize = 0;
+        captureStackSize = 0;
+    }
+
+    private void nextEpoch() {
+        if (++epoch == 0) {
+            Arrays.fill(seen, 0);
+            epoch = 1;
+        }
+    }
+
+    private static int words(int cells) {
+        return (cells + 63) >>> 6;
+    }
+
+    private boolean has(int player, int cell) {
+        return (stones[player][cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    private boolean isOccupied(int cell) {
+        return ((stones[RED][cell >>> 6] | stones[BLUE][cell >>> 6]) & (1L << cell)) != 0;
+    }
+
+    private boolean isEmpty(int player) {
+        for (long word : stones[player]) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,271 @@
+package com.charliezhang.hexoust;
+
+import java.util.List;
+
+/**
+ * Represents a hexagonal grid cell in cube coordinates.
+ */
+/**
+     * Constructs a HexCube with the specified coordinates.
+     *
+     * @param q the q-coordinate
+     * @param r the r-coordinate
+     * @param s the s-coordinate
+     * @throws IllegalArgumentException if q + r + s != 0
+     */
+class HexCube {
+    public HexCube(int q, int r, int s) {
+        this.q = q;
+        this.r = r;
+        this.s = s;
+        if (q + r + s != 0)
+            throw new IllegalArgumentException("q + r + s must be 0");
+    }
+
+    /**
+     * Constructs a HexCube from axial coordinates, which always satisfy q + r + s == 0.
+     */
+    private HexCube(int q, int r) {
+        this.q = q;
+        this.r = r;
+        this.s = -q - r;
+    }
+    public final int q;
+    public final int r;
+    public final int s;
+
+    /** Half-width of the range of coordinates served from the flyweight cache. */
+    private static final int CACHE_RADIUS = 64;
+
+    /** Shared instances for every q and r in [-CACHE_RADIUS, CACHE_RADIUS]. */
+    private static final HexCube[] CACHE = new HexCube[(2 * CACHE_RADIUS + 1) * (2 * CACHE_RADIUS + 1)];
+
+    static {
+        for (int q = -CACHE_RADIUS; q <= CACHE_RADIUS; q++) {
+            for (int r = -CACHE_RADIUS; r <= CACHE_RADIUS; r++) {
+                CACHE[(q + CACHE_RADIUS) * (2 * CACHE_RADIUS + 1) + (r + CACHE_RADIUS)] = new HexCube(q, r);
+            }
+        }
+    }
+
+    /**
+     * Returns the HexCube at the given axial coordinates, shared from a cache
+     * when the coordinates are near the origin.
+     *
+     * @param q the q-coordinate
+     * @param r the r-coordinate
+     * @return the HexCube (q, r, -q - r)
+     */
+    public static HexCube of(int q, int r) {
+        if (q >= -CACHE_RADIUS && q <= CACHE_RADIUS && r >= -CACHE_RADIUS && r <= CACHE_RADIUS) {
+            return CACHE[(q + CACHE_RADIUS) * (2 * CACHE_RADIUS + 1) + (r + CACHE_RADIUS)];
+        }
+        return new HexCube(q, r);
+    }
+
+    /**
+     * Adds the coordinates of another HexCube to this one.
+     *
+     * @param b the HexCube to add
+     * @return a HexCube resulting from the addition
+     */
+    public HexCube add(HexCube b) {
+        return of(q + b.q, r + b.r);
+    }
+
+    /**
+     * Subtracts the coordinates of another HexCube from this one.
+     *
+     * @param b the HexCube to subtract
+     * @return a HexCube resulting from the subtraction
+     */
+    public HexCube subtract(HexCube b) {
+        return of(q - b.q, r - b.r);
+    }
+
+    static public final List<HexCube> directions = List.of(
+            new HexCube(1, 0, -1),
+            new HexCube(1, -1, 0),
+            new HexCube(0, -1, 1),
+            new HexCube(-1, 0, 1),
+            new HexCube(-1, 1, 0),
+            new HexCube(0, 1, -1));
+
+    /** The q and r offsets of each direction, for the packed-coordinate helpers. */
+    private static final int[] DIRECTION_Q = {1, 1, 0, -1, -1, 0};
+    private static final int[] DIRECTION_R = {0, -1, -1, 0, 1, 1};
+
+    static public HexCube direction(int direction) {
+        return HexCube.directions.get(direction);
+    }
+
+    /**
+     * Returns the neighbor HexCube in the specified direction.
+     *
+     * @param direction the direction (0 to 5)
+     * @return the neighbor HexCube
+     */
+    public HexCube neighbor(int direction) {
+        return of(q + DIRECTION_Q[direction], r + DIRECTION_R[direction]);
+    }
+
+    /**
+     * Calculates the length of the HexCube from the origin (0, 0, 0).
+     *
+     * @return the length
+     */
+    public int length() {
+        return (int)((Math.abs(q) + Math.abs(r) + Math.abs(s)) / 2);
+    }
+
+    /**
+     * Calculates the distance to another HexCube.
+     *
+     * @param b the other HexCube
+     * @return the distance
+     */
+    public int distance(HexCube b) {
+        int dq = q - b.q;
+        int dr = r - b.r;
+        return (Math.abs(dq) + Math.abs(dr) + Math.abs(dq + dr)) / 2;
+    }
+
+    /**
+     * @return the coordinates of this HexCube packed into an int
+     */
+    public int pack() {
+        return pack(q, r);
+    }
+
+    /**
+     * Packs axial coordinates into a single int, q in the high 16 bits and r in
+     * the low 16 bits. Both coordinates must lie in [-32768, 32767].
+     *
+     * @param q the q-coordinate
+     * @param r the r-coordinate
+     * @return the packed coordinates
+     */
+    public static int pack(int q, int r) {
+        return (q << 16) | (r & 0xFFFF);
+    }
+
+    /**
+     * @param packed packed coordinates
+     * @return the q-coordinate
+     */
+    public static int packedQ(int packed) {
+        return packed >> 16;
+    }
+
+    /**
+     * @param packed packed coordinates
+     * @return the r-coordinate
+     */
+    public static int packedR(int packed) {
+        return (short) packed;
+    }
+
+    /**
+     * @param packed packed coordinates
+     * @return the s-coordinate
+     */
+    public static int packedS(int packed) {
+        return -packedQ(packed) - packedR(packed);
+    }
+
+    /**
+     * @param packed packed coordinates
+     * @return the HexCube at the packed coordinates
+     */
+    public static HexCube unpack(int packed) {
+        return of(packedQ(packed), packedR(packed));
+    }
+
+    /**
+     * Returns the neighbor of packed coordinates in the specified direction.
+     *
+     * @param packed    packed coordinates
+     * @param direction the direction (0 to 5)
+     * @return the packed coordinates of the neighbor
+     */
+    public static int neighbor(int packed, int direction) {
+        return pack(packedQ(packed) + DIRECTION_Q[direction], packedR(packed) + DIRECTION_R[direction]);
+    }
+
+    /**
+     * Calculates the distance between two packed coordinates.
+     *
+     * @param a packed coordinates
+     * @param b packed coordinates
+     * @return the distance
+     */
+    public static int distance(int a, int b) {
+        int dq = packedQ(a) - packedQ(b);
+        int dr = packedR(a) - packedR(b);
+        return (Math.abs(dq) + Math.abs(dr) + Math.abs(dq + dr)) / 2;
+    }
+
+    /**
+     * Writes the packed coordinates of every hex exactly {@code radius} steps from
+     * {@code center}, walking the ring counter-clockwise from direction 4.
+     *
+     * @param center packed coordinates of the center
+     * @param radius the ring radius
+     * @param out    a buffer of at least {@code max(1, 6 * radius)} entries
+     * @return the number of coordinates written
+     */
+    public static int ring(int center, int radius, int[] out) {
+        if (radius == 0) {
+            out[0] = center;
+            return 1;
+        }
+        int q = packedQ(center) + DIRECTION_Q[4] * radius;
+        int r = packedR(center) + DIRECTION_R[4] * radius;
+        int count = 0;
+        for (int side = 0; side < 6; side++) {
+            for (int step = 0; step < radius; step++) {
+                out[count++] = pack(q, r);
+                q += DIRECTION_Q[side];
+                r += DIRECTION_R[side];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes the packed coordinates of every hex within {@code radius} steps of
+     * {@code center}, in ascending q, then ascending r order.
+     *
+     * @param center packed coordinates of the center
+     * @param radius the range radius
+     * @param out    a buffer of at least {@code 3 * radius * (radius + 1) + 1} entries
+     * @return the number of coordinates written
+     */
+    public static int range(int center, int radius, int[] out) {
+        int cq = packedQ(center);
+        int cr = packedR(center);
+        int count = 0;
+        for (int dq = -radius; dq <= radius; dq++) {
+            int r1 = Math.max(-radius, -dq - radius);
+            int r2 = Math.min(radius, -dq + radius);
+            for (int dr = r1; dr <= r2; dr++) {
+                out[count++] = pack(cq + dq, cr + dr);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        HexCube hexCube = (HexCube) o;
+        return q == hexCube.q && r == hexCube.r;
+    }
+
+    @Override
+    public int hashCode() {
+        return pack(q, r);
+    }
+
+}
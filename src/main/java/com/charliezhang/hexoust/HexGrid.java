@@ -2,291 +2,26 @@ package com.charliezhang.hexoust;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
-import java.util.Objects;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 
-/**
-     * Constructs a Point with the given x and y coordinates.
-     *
-     * @param x the x-coordinate
-     * @param y the y-coordinate
-     */
-class Point {
-    public Point(double x, double y) {
-        /**
-     * The x/y-coordinate of the point.
-     */
-        this.x = x;
-        this.y = y;
-    }
-    public final double x;
-    public final double y;
-
-    /**
-     * Compares this Point to another object for equality. Two Points are equal if their
-     * x and y coordinates are identical.
-     *
-     * @param obj the object to compare
-     * @return true if the objects are equal, false otherwise
-     */
-    @Override
-    public boolean equals(Object obj) {
-        if (this == obj) return true; // same reference
-        if (obj == null || getClass() != obj.getClass()) return false; // not same type
-        Point point = (Point) obj;
-        return Double.compare(point.x, x) == 0 &&
-                Double.compare(point.y, y) == 0;
-    }
-
-    /**
-     * Computes the hash code for the Point based on its x and y coordinates.
-     *
-     * @return the hash code
-     */
-    @Override
-    public int hashCode() {
-        return Objects.hash(x, y);
-    }
-}
-
-/**
- * Represents a hexagonal grid cell in cube coordinates.
- */
-/**
-     * Constructs a HexCube with the specified coordinates.
-     *
-     * @param q the q-coordinate
-     * @param r the r-coordinate
-     * @param s the s-coordinate
-     * @throws IllegalArgumentException if q + r + s != 0
-     */
-class HexCube {
-    public HexCube(int q, int r, int s) {
-        this.q = q;
-        this.r = r;
-        this.s = s;
-        if (q + r + s != 0)
-            throw new IllegalArgumentException("q + r + s must be 0");
-    }
-    public final int q;
-    public final int r;
-    public final int s;
-
-    /**
-     * Adds the coordinates of another HexCube to this one.
-     *
-     * @param b the HexCube to add
-     * @return a new HexCube resulting from the addition
-     */
-    public HexCube add(HexCube b) {
-        return new HexCube(q + b.q, r + b.r, s + b.s);
-    }
-
-    /**
-     * Subtracts the coordinates of another HexCube from this one.
-     *
-     * @param b the HexCube to subtract
-     * @return a new HexCube resulting from the subtraction
-     */
-    public HexCube subtract(HexCube b) {
-        return new HexCube(q - b.q, r - b.r, s - b.s);
-    }
-
-    static public ArrayList<HexCube> directions = new ArrayList<HexCube>() {{
-        add(new HexCube(1, 0, -1));
-        add(new HexCube(1, -1, 0));
-        add(new HexCube(0, -1, 1));
-        add(new HexCube(-1, 0, 1));
-        add(new HexCube(-1, 1, 0));
-        add(new HexCube(0, 1, -1));
-    }};
-
-    static public HexCube direction(int direction) {
-        return HexCube.directions.get(direction);
-    }
-
-    /**
-     * Returns the neighbor HexCube in the specified direction.
-     *
-     * @param direction the direction (0 to 5)
-     * @return the neighbor HexCube
-     */
-    public HexCube neighbor(int direction) {
-        return add(HexCube.direction(direction));
-    }
-
-    /**
-     * Calculates the length of the HexCube from the origin (0, 0, 0).
-     *
-     * @return the length
-     */
-    public int length() {
-        return (int)((Math.abs(q) + Math.abs(r) + Math.abs(s)) / 2);
-    }
-
-    /**
-     * Calculates the distance to another HexCube.
-     *
-     * @param b the other HexCube
-     * @return the distance
-     */
-    public int distance(HexCube b) {
-        return subtract(b).length();
-    }
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        HexCube hexCube = (HexCube) o;
-        return q == hexCube.q && r == hexCube.r && s == hexCube.s;
-    }
-
-    @Override
-    public int hashCode() {
-        return java.util.Objects.hash(q, r, s);
-    }
-
-}
-
-/**
- * Represents a fractional hexagonal grid cell in cube coordinates.
- */
-class FractionalHexCube {
-    public FractionalHexCube(double q, double r, double s) {
-        this.q = q;
-        this.r = r;
-        this.s = s;
-        if (Math.round(q + r + s) != 0)
-            throw new IllegalArgumentException("q + r + s must be 0");
-    }
-    public final double q;
-    public final double r;
-    public final double s;
-
-    /**
-     * Rounds the fractional hex cube coordinates to the nearest integer HexCube.
-     *
-     * @return the rounded HexCube
-     */
-    public HexCube hexRound() {
-        int qi = (int)(Math.round(q));
-        int ri = (int)(Math.round(r));
-        int si = (int)(Math.round(s));
-        double q_diff = Math.abs(qi - q);
-        double r_diff = Math.abs(ri - r);
-        double s_diff = Math.abs(si - s);
-        if (q_diff > r_diff && q_diff > s_diff) {
-            qi = -ri - si;
-        } else if (r_diff > s_diff) {
-            ri = -qi - si;
-        } else {
-            si = -qi - ri;
-        }
-        return new HexCube(qi, ri, si);
-    }
-}
-
-class Orientation {
-    public Orientation(double f0, double f1, double f2, double f3,
-                       double b0, double b1, double b2, double b3,
-                       double start_angle) {
-        this.f0 = f0;
-        this.f1 = f1;
-        this.f2 = f2;
-        this.f3 = f3;
-        this.b0 = b0;
-        this.b1 = b1;
-        this.b2 = b2;
-        this.b3 = b3;
-        this.start_angle = start_angle;
-    }
-    public final double f0;
-    public final double f1;
-    public final double f2;
-    public final double f3;
-    public final double b0;
-    public final double b1;
-    public final double b2;
-    public final double b3;
-    public final double start_angle;
-}
-
-class Layout {
-    public Layout(Orientation orientation, Point size, Point origin) {
-        this.orientation = orientation;
-        this.size = size;
-        this.origin = origin;
-    }
-    public final Orientation orientation;
-    public final Point size;
-    public final Point origin;
-
-    static public Orientation flat = new Orientation(3.0 / 2.0, 0.0, Math.sqrt(3.0) / 2.0, Math.sqrt(3.0),
-            2.0 / 3.0, 0.0, -1.0 / 3.0, Math.sqrt(3.0) / 3.0, 0.0);
-
-    /**
-     * Converts a HexCube to a pixel Point.
-     *
-     * @param h the HexCube to convert
-     * @return the corresponding Point in pixel coordinates
-     */
-    public Point hexToPixel(HexCube h) {
-        Orientation M = orientation;
-        double x = (M.f0 * h.q + M.f1 * h.r) * size.x;
-        double y = (M.f2 * h.q + M.f3 * h.r) * size.y;
-        return new Point(x + origin.x, y + origin.y);
-    }
-
-
-    /**
-     * Converts a pixel Point to a FractionalHexCube.
-     *
-     * @param p the Point in pixel coordinates
-     * @return the corresponding FractionalHexCube
-     */
-    public FractionalHexCube pixelToHex(Point p) {
-        Orientation M = orientation;
-        Point pt = new Point((p.x - origin.x) / size.x, (p.y - origin.y) / size.y);
-        double q = M.b0 * pt.x + M.b1 * pt.y;
-        double r = M.b2 * pt.x + M.b3 * pt.y;
-        return new FractionalHexCube(q, r, -q - r);
-    }
-
-    /**
-     * Calculates the offset for a hex corner.
-     *
-     * @param corner the corner index (0 to 5)
-     * @return the offset Point
-     */
-    public Point hexCornerOffset(int corner) {
-        Orientation M = orientation;
-        double angle = 2.0 * Math.PI * (M.start_angle - corner) / 6.0;
-        return new Point(size.x * Math.cos(angle), size.y * Math.sin(angle));
-    }
-
-    /**
-     * Calculates the polygon corners for a HexCube.
-     *
-     * @param h the HexCube
-     * @return an ArrayList of Points representing the polygon corners
-     */
-    public ArrayList<Point> polygonCorners(HexCube h) {
-        ArrayList<Point> corners = new ArrayList<>();
-        Point center = hexToPixel(h);
-        for (int i = 0; i < 6; i++) {
-            Point offset = hexCornerOffset(i);
-            corners.add(new Point(center.x + offset.x, center.y + offset.y));
-        }
-        return corners;
-    }
-}
-
 /**
  * Represents a hexagonal grid-based game. The grid supports placing stones, 
  * calculating neighbors, and determining game states such as winning conditions.
@@ -295,24 +30,60 @@ class Layout {
  * The game alternates turns between two players (Red and Blue) and tracks game 
  * states, including capturing mechanics and win conditions. The class also 
  * manages rendering of the game board and user interactions via mouse clicks.
+ * <p>
+ * Moves are processed off the event dispatch thread: the event dispatch thread
+ * only finds the clicked cell and queues it, and a single game worker validates
+ * and plays it, then publishes a {@link BoardSnapshot} that painting reads. Only
+ * the worker touches the {@link GameState}. Errors and wins are shown as notices
+ * in the panel rather than modal dialogs, so input is never blocked.
  */
 
-public class HexGrid extends JPanel {
+public final class HexGrid extends JPanel {
 
-     /** Indicates whether the game is over. */
+     /** Indicates whether the game is over. Confined to the game worker. */
     private boolean gameOver = false;
 
     /** The grid of hexagons representing the game board. */
     final ArrayList<ArrayList<Point>> grid;
 
-    /** List of points occupied by red stones. */
-    final ArrayList<Point> redStones = new ArrayList<>();
+    /** The layout the grid was built with, or null for a grid given as raw polygons. */
+    private final transient Layout layout;
+
+    /** The board topology; cell ids follow the order of {@link #grid}. */
+    final transient Board board;
+
+    /** The rules engine holding the stones on the board. Confined to the game worker. */
+    final transient GameState state;
+
+    /** Applies every change to {@link #state}, one at a time, off the event dispatch thread. */
+    private final transient ExecutorService worker;
+
+    /** The thread {@link #worker} currently runs on. */
+    private transient volatile Thread workerThread;
+
+    /** The position as of the last change, read when painting. */
+    private transient volatile BoardSnapshot snapshot;
+
+    /** Cells that differ between two snapshots; used only by the game worker. */
+    private final int[] changedCells;
+
+    /** A follow-up for changes that need nothing more from the event dispatch thread. */
+    private static final Runnable NOTHING = () -> { };
 
-    /** List of points occupied by blue stones. */
-    public final ArrayList<Point> blueStones = new ArrayList<>();
+    /** Outline, center and stone paints of each cell, indexed by cell id. */
+    private final transient CellGeometry geometry;
+
+    /** Lookup from pixel center to cell id. */
+    private final transient Map<Point, Integer> cellAtCenter = new HashMap<>();
+
+    /** Points occupied by red stones. */
+    final transient StoneView redStones = new StoneView(GameState.RED);
+
+    /** Points occupied by blue stones. */
+    public final transient StoneView blueStones = new StoneView(GameState.BLUE);
     
     /** Tracks whether it is Red's turn to play. */
-    public boolean isRedTurn = true;
+    public volatile boolean isRedTurn = true;
 
     /** The background image displayed in the game. */
     private BufferedImage backgroundImage;
@@ -327,16 +98,64 @@ public class HexGrid extends JPanel {
     private Rectangle cloudButtonBounds;
 
     /** Tracks the current number of turns played. */
-    int currentTurns = 0;
+    volatile int currentTurns = 0;
+
+    /** Confetti particles of the win animation. */
+    public final transient ParticleSystem confetti = new ParticleSystem(System.nanoTime());
 
-    /** List of confetti objects for the win animation. */
-    public final ArrayList<Confetti> confettiList = new ArrayList<>();
+    /** Number of confetti particles spawned when a game is won. */
+    private int confettiCount = 500;
+
+    /** Whether each computer move prints its search summary to standard output. */
+    private volatile boolean searchLog = false;
 
     /** Flag indicating whether to show confetti animation. */
     public boolean showConfetti = false;
 
-    /** Timer to control the animation of confetti. */
-    private Timer confettiTimer;
+    /** Drives every animation of the panel from a single frame clock. */
+    final transient AnimationScheduler animations = new AnimationScheduler(this::repaint);
+
+    /** The running confetti animation, or null. */
+    private transient AnimationScheduler.Animation confettiAnimation;
+
+    /** Number of animation steps the confetti falls for: 5 seconds. */
+    private static final int CONFETTI_STEPS = (int) (5_000_000_000L / AnimationScheduler.STEP_NANOS);
+
+    /** The computer player of each side, or null where a human clicks. */
+    private final transient Player[] computerPlayers = new Player[2];
+
+    /** Bumped on every reset, so a search started before it is discarded. Confined to the game worker. */
+    private int generation;
+
+    /** Whether a computer player is currently searching. Confined to the game worker. */
+    private boolean thinking;
+
+    /** Where finished and abandoned games are recorded, or null. Set on any thread, read on the game worker. */
+    private transient volatile GameArchiveWriter recorder;
+
+    /** Latency of each phase of handling a move, and the engine work it took. */
+    final transient MoveMetrics metrics = new MoveMetrics();
+
+    /** The sky, titles, textured grid and reset button, rendered once per panel size. */
+    private transient BufferedImage boardLayer;
+
+    /** Area of the turn indicator, repainted whenever the side to move changes. */
+    private static final Rectangle TURN_INDICATOR = new Rectangle(20, -60, 240, 50);
+
+    private static final Font TURN_FONT = new Font("SansSerif", Font.BOLD, 20);
+
+    /** The message shown in the panel, or null. Read and written on the event dispatch thread. */
+    private String notice;
+
+    private Color noticeColor;
+
+    /** Hides the notice once it has been shown for long enough. */
+    private final Timer noticeTimer = new Timer(2500, e -> clearNotice());
+
+    /** Area of the notice, to the right of the turn indicator. */
+    private static final Rectangle NOTICE_AREA = new Rectangle(280, -62, 400, 54);
+
+    private static final Font NOTICE_FONT = new Font("SansSerif", Font.BOLD, 22);
 
     private static BufferedImage loadImageResource(String resourcePath) throws IOException {
         try (var inputStream = HexGrid.class.getResourceAsStream(resourcePath)) {
@@ -353,12 +172,39 @@ public class HexGrid extends JPanel {
 
 
     /**
-     * Constructs a HexGrid object with the given hexagonal grid layout.
+     * Constructs a HexGrid object with the given hexagonal grid layout. Cells are
+     * considered adjacent when their centers are within 45 pixels of each other.
      *
      * @param hexagons The grid layout containing hexagonal tiles.
      */
     public HexGrid(ArrayList<ArrayList<Point>> hexagons) {
+        this(hexagons, null, null);
+    }
+
+    /**
+     * Constructs a HexGrid that renders the given board with the given layout.
+     *
+     * @param layout The layout used to convert cells to pixels.
+     * @param board  The board to play on.
+     */
+    public HexGrid(Layout layout, Board board) {
+        this(polygonsOf(layout, board), layout, board);
+    }
+
+    private HexGrid(ArrayList<ArrayList<Point>> hexagons, Layout layout, Board board) {
         this.grid = hexagons;
+        this.layout = layout;
+        this.geometry = new CellGeometry(hexagons);
+        for (int i = 0; i < geometry.size(); i++) {
+            cellAtCenter.put(geometry.center(i), i);
+        }
+        // Using 45 as the approximate center-to-center distance threshold
+        this.board = board != null ? board : Board.fromCenters(geometry.centers(), 45);
+        this.state = new GameState(this.board);
+        this.snapshot = new BoardSnapshot(state);
+        this.changedCells = new int[this.board.size()];
+        this.worker = Executors.newSingleThreadExecutor(task -> workerThread = Thread.ofVirtual().name("hexoust-game").unstarted(task));
+        noticeTimer.setRepeats(false);
         try {
             backgroundImage = loadImageResource("/images/sky.jpg"); // adds the image in the background (of a sky)
             Texture = loadImageResource("/images/Texture.jpg"); // adds the texture
@@ -377,246 +223,512 @@ public class HexGrid extends JPanel {
                 if (cloudButtonBounds.contains(e.getPoint())) {
                     int confirm = JOptionPane.showConfirmDialog(null, "Are you sure you want to reset the game?", "Reset Game", JOptionPane.YES_NO_OPTION);
                     if (confirm == JOptionPane.YES_OPTION) {
-                        redStones.clear();
-                        blueStones.clear();
-                        isRedTurn = true;
-                        gameOver = false;
-                        currentTurns = 0;
-                        repaint();
+                        submit(HexGrid.this::reset);
                     }
                     return;
                 }
 
-                Point click = new Point(e.getX(), e.getY());
-                if (cloudButtonBounds.contains(e.getPoint())) {
-                    resetGame();
-                    return; // skip further click handling
+                long start = System.nanoTime();
+                int cell = cellAt(new Point(e.getX(), e.getY()));
+                metrics.record(MoveMetrics.Phase.HIT_TEST, cell, start);
+                if (cell >= 0) {
+                    submitMove(cell);
                 }
+            }
+        });
 
-                if(!gameOver) {
-                    // Loop over hexagons in the grid
-                    for (ArrayList<Point> hexagon : grid) {
-                        Point center = getHexCenter(hexagon);
-                        double distance = Math.sqrt(Math.pow(center.x - click.x, 2) + Math.pow(center.y - click.y, 2));
-
-                        // Check if click is within the hexagon's center radius (20 units)
-                        if (distance <= 20) {
-                            // Check if the cell is already occupied
-                            if (redStones.contains(center) || blueStones.contains(center)) {
-                                JOptionPane.showMessageDialog(null, "Cell Placement Invalid", "Error", JOptionPane.ERROR_MESSAGE);
-                                break;
-                            }
-
-                            ArrayList<Point> neighbors = getNeighborCenters(center);
-
-
-                            boolean touchesSame = false;
-                            for (Point nb : neighbors) {
-                                if (isRedTurn && redStones.contains(nb)) {
-                                    touchesSame = true;
-                                    break;
-                                } else if (!isRedTurn && blueStones.contains(nb)) {
-                                    touchesSame = true;
-                                    break;
-                                }
-                            }
-
-                            // If touching a same-color stone, build the connected chain and check for an opponent neighbor.
-                            if (touchesSame) {
-                                ArrayList<Point> chain = new ArrayList<>();
-                                ArrayList<Point> line = new ArrayList<>();
-                                chain.add(center);
-                                line.add(center);
-
-                                while (!line.isEmpty()) {
-                                    Point current = line.remove(0);
-                                    for (Point nb : getNeighborCenters(current)) {
-                                        if (isRedTurn && redStones.contains(nb) && !chain.contains(nb)) {
-                                            chain.add(nb);
-                                            line.add(nb);
-                                        } else if (!isRedTurn && blueStones.contains(nb) && !chain.contains(nb)) {
-                                            chain.add(nb);
-                                            line.add(nb);
-                                        }
-                                    }
-                                }
-
-                                boolean chainTouchesOpponent = false;
-                                for (Point stone : chain) {
-                                    for (Point nb : getNeighborCenters(stone)) {
-                                        if (isRedTurn && blueStones.contains(nb)) {
-                                            chainTouchesOpponent = true;
-                                            break;
-                                        } else if (!isRedTurn && redStones.contains(nb)) {
-                                            chainTouchesOpponent = true;
-                                            break;
-                                        }
-                                    }
-                                    if (chainTouchesOpponent) break;
-                                }
-
-                                // Check the chained stones / if touching enemies
-                                if (!chainTouchesOpponent) {
-                                    JOptionPane.showMessageDialog(null, "Invalid move", "Error", JOptionPane.ERROR_MESSAGE);
-                                    break;
-                                }
-                            }
-
-                            if (isRedTurn) {
-                                redStones.add(center);
-                                currentTurns++;
-                            } else {
-                                blueStones.add(center);
-                                currentTurns++;
-                            }
-
-                            // Check for any captured pieces and to remove them
-                            boolean captured = checkAndChangeColour(center, isRedTurn);
-                            repaint();
-
-                            if (currentTurns > 2) {
-                                if (blueStones.isEmpty()) {
-                                    gameOver = true;
-                                    startConfettiAnimation();
-                                    JOptionPane.showMessageDialog(
-                                            null,
-                                            "<html><div style='text-align: center;'><span style='font-size:20pt; color:red;'>Red Player Wins!!!</span></div></html>",
-                                            "Game Over",
-                                            JOptionPane.INFORMATION_MESSAGE
-                                    );
-                                    return;
-                                } else if (redStones.isEmpty()) {
-                                    gameOver = true;
-                                    startConfettiAnimation();
-                                    JOptionPane.showMessageDialog(
-                                            null,
-                                            "<html><div style='text-align: center;'><span style='font-size:20pt; color:blue;'>Blue Player Wins!!!</span></div></html>",
-                                            "Game Over",
-                                            JOptionPane.INFORMATION_MESSAGE
-                                    );
-                                    return;
-                                }
-                            }
-
-
-                            if (!captured) {
-                                isRedTurn = !isRedTurn;
-                            }
-
-                            repaint();
-                            break;  // Stop processing further hexagons for this click.
-                        }
-                    }
-                }
+        // Ctrl+Z and Ctrl+Y, or the arrow keys, step through the move history
+        InputMap keys = getInputMap(WHEN_IN_FOCUSED_WINDOW);
+        keys.put(KeyStroke.getKeyStroke("control Z"), "undo");
+        keys.put(KeyStroke.getKeyStroke("LEFT"), "undo");
+        keys.put(KeyStroke.getKeyStroke("control Y"), "redo");
+        keys.put(KeyStroke.getKeyStroke("control shift Z"), "redo");
+        keys.put(KeyStroke.getKeyStroke("RIGHT"), "redo");
+        getActionMap().put("undo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                submit(HexGrid.this::undo);
+            }
+        });
+        getActionMap().put("redo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                submit(HexGrid.this::redo);
             }
         });
     }
 
     /**
-     * Starts the confetti animation when the game is won.
-     * Confetti falls for 5 seconds and then stops.
+     * Finds the cell under a pixel. With a layout this is the inverse layout
+     * transform, exact to the hexagon outline and independent of board size;
+     * grids built from raw polygons fall back to a 20 pixel radius around each center.
+     *
+     * @param click The pixel to test.
+     * @return The cell id under the pixel, or -1 if there is none.
      */
-    public void startConfettiAnimation() {
-        showConfetti = true;
-        confettiList.clear();
-
-        // Create a bunch of random confetti
-        for (int i = 0; i < 500; i++) {
-            int x = (int) (Math.random() * getWidth());
-            int y = (int) (Math.random() * 100); // Start above the screen
-            Color[] colors = {Color.RED, Color.BLUE, Color.YELLOW, Color.GREEN, Color.PINK, Color.ORANGE};
-            Color color = colors[(int) (Math.random() * colors.length)];
-            confettiList.add(new Confetti(x, y, color));
+    int cellAt(Point click) {
+        if (layout != null) {
+            return board.indexOf(layout.pixelToHex(click).hexRound());
         }
-
-        // Animation timer
-        confettiTimer = new Timer(30, e -> {
-            for (Confetti c : confettiList) {
-                c.fall();
+        for (int cell = 0; cell < geometry.size(); cell++) {
+            Point center = geometry.center(cell);
+            double distance = Math.sqrt(Math.pow(center.x - click.x, 2) + Math.pow(center.y - click.y, 2));
+            // Check if click is within the hexagon's center radius (20 units)
+            if (distance <= 20) {
+                return cell;
             }
-            repaint();
-        });
+        }
+        return -1;
+    }
 
-        confettiTimer.start();
+    /**
+     * Queues a click on the given cell for the game worker. Clicks while the
+     * game is over or a computer player is to move are ignored there.
+     *
+     * @param cell The cell id that was clicked.
+     */
+    void submitMove(int cell) {
+        submit(() -> gameOver || computerPlayers[state.sideToMove()] != null ? null : playMove(cell));
+    }
 
-        // Stop after 5 seconds
-        new Timer(5000, e -> {
-            showConfetti = false;
-            if (confettiTimer != null) confettiTimer.stop();
-            repaint();
-        }).start();
+    /**
+     * Plays a move for the current player on the given cell. Runs on the game
+     * worker.
+     *
+     * @param cell The cell id to play.
+     * @return what the event dispatch thread shows afterwards: a notice for an
+     *         invalid placement, the win celebration, or nothing
+     */
+    private Runnable playMove(int cell) {
+        long start = System.nanoTime();
+        long neighborReads = state.neighborReads();
+        long stonesScanned = state.stonesScanned();
+        boolean occupied = state.owner(cell) != GameState.NONE;
+        boolean legal = !occupied && state.isLegal(cell);
+        metrics.record(MoveMetrics.Phase.VALIDATION, cell, start);
+        // Check if the cell is already occupied
+        if (occupied) {
+            return () -> showNotice("Cell Placement Invalid", Color.BLACK);
+        }
+        // A placement that joins a friendly chain must capture
+        if (!legal) {
+            return () -> showNotice("Invalid move", Color.BLACK);
+        }
+
+        BoardSnapshot before = snapshot;
+        start = System.nanoTime();
+        int captured = state.play(cell);
+        metrics.record(MoveMetrics.Phase.CAPTURE, cell, start);
+        metrics.move(cell, captured, state.neighborReads() - neighborReads, state.stonesScanned() - stonesScanned);
+        if (state.isTerminal()) {
+            recordGame();
+        }
+        return moved(before);
     }
-    
+
     /**
-     * Resets the game by clearing all stones, resetting the turn, and repainting the board.
+     * Takes back the last move. When one side is a computer player, moves are
+     * taken back until the human is to move again, so the computer does not
+     * immediately replay them. A search in progress is discarded.
+     *
+     * @return false if there was no move to take back
      */
-    public void resetGame() {
-        redStones.clear();
-        blueStones.clear();
-        isRedTurn = true;
-        currentTurns = 0;
+    public boolean undoMove() {
+        return await(this::undo);
+    }
+
+    private Runnable undo() {
+        if (state.moveCount() == 0) {
+            return null;
+        }
+        BoardSnapshot before = snapshot;
+        generation++;
         gameOver = false;
-        repaint();
+        do {
+            state.undo();
+        } while (state.moveCount() > 0 && againstComputer() && computerPlayers[state.sideToMove()] != null);
+        Runnable followUp = moved(before);
+        return () -> {
+            stopConfettiAnimation();
+            followUp.run();
+        };
     }
 
     /**
-     * Checks and changes the color of stones based on capturing rules.
+     * Replays the last move taken back with {@link #undoMove()}, together with
+     * any computer replies that were taken back with it.
      *
-     * @param center      The center point of the recently placed stone.
-     * @param isRedTurn   Whether the current turn belongs to the red player.
-     * @return True if any opponent stones were captured, otherwise false.
+     * @return false if there was no move to replay
      */
-    public boolean checkAndChangeColour(Point center, boolean isRedTurn) {
-        ArrayList<Point> chain = new ArrayList<>();
-        ArrayList<Point> line = new ArrayList<>();
+    public boolean redoMove() {
+        return await(this::redo);
+    }
 
-        chain.add(center);
-        line.add(center);
+    private Runnable redo() {
+        if (state.redoCount() == 0 || gameOver) {
+            return null;
+        }
+        BoardSnapshot before = snapshot;
+        generation++;
+        do {
+            state.redo();
+        } while (state.redoCount() > 0 && !state.isTerminal()
+                && againstComputer() && computerPlayers[state.sideToMove()] != null);
+        return moved(before);
+    }
 
-        while (!line.isEmpty()) {
-            Point current = line.remove(0);
+    /**
+     * @return whether exactly one side is played by the computer
+     */
+    private boolean againstComputer() {
+        return (computerPlayers[GameState.RED] == null) != (computerPlayers[GameState.BLUE] == null);
+    }
 
-            for (Point nb : getNeighborCenters(current)) {
-                if (isRedTurn && redStones.contains(nb) && !chain.contains(nb)) {
-                    chain.add(nb);
-                    line.add(nb);
+    /**
+     * Publishes the position after it changed, notes a win and lets a computer
+     * player move. Runs on the game worker.
+     *
+     * @param before the snapshot published before the change
+     * @return the win celebration for the event dispatch thread, or {@link #NOTHING}
+     */
+    private Runnable moved(BoardSnapshot before) {
+        int winner = publish(before).winner;
+        Runnable followUp = NOTHING;
+        if (winner != GameState.NONE) {
+            gameOver = true;
+            String text = winner == GameState.RED ? "Red Player Wins!!!" : "Blue Player Wins!!!";
+            Color color = winner == GameState.RED ? Color.RED : Color.BLUE;
+            followUp = () -> {
+                startConfettiAnimation();
+                showNotice(text, color);
+            };
+        }
+        requestComputerMove();
+        return followUp;
+    }
+
+    /**
+     * Takes a new snapshot of the position and repaints only the cells whose
+     * owner differs from the previous one, together with the turn indicator.
+     * Runs on the game worker; the repaint itself is queued for the event
+     * dispatch thread.
+     *
+     * @param before the snapshot published before the change
+     * @return the new snapshot
+     */
+    private BoardSnapshot publish(BoardSnapshot before) {
+        BoardSnapshot after = new BoardSnapshot(state);
+        snapshot = after;
+        currentTurns = after.placements;
+        isRedTurn = after.side == GameState.RED;
+
+        Rectangle dirty = turnIndicatorBounds();
+        int count = after.changedCells(before, changedCells);
+        for (int i = 0; i < count; i++) {
+            dirty.add(geometry.bounds(changedCells[i]));
+        }
+        // Borders are stroked up to 3 pixels wide around the outline
+        dirty.grow(3, 3);
+        repaint(dirty);
+        return after;
+    }
+
+    /**
+     * Publishes the position if a change that applies no rules did anything.
+     *
+     * @param changed whether the position changed
+     * @return {@link #NOTHING} if it changed, otherwise null
+     */
+    private Runnable published(boolean changed) {
+        if (!changed) {
+            return null;
+        }
+        publish(snapshot);
+        return NOTHING;
+    }
+
+    private Rectangle turnIndicatorBounds() {
+        return new Rectangle(TURN_INDICATOR.x, getHeight() + TURN_INDICATOR.y, TURN_INDICATOR.width, TURN_INDICATOR.height);
+    }
+
+    private Rectangle noticeBounds() {
+        return new Rectangle(NOTICE_AREA.x, getHeight() + NOTICE_AREA.y, NOTICE_AREA.width, NOTICE_AREA.height);
+    }
+
+    /**
+     * Queues a change for the game worker and returns at once. What the change
+     * returns is then run on the event dispatch thread.
+     *
+     * @param change the change; it returns its follow-up, or null if nothing changed
+     */
+    private void submit(Supplier<Runnable> change) {
+        worker.execute(() -> {
+            Runnable followUp = change.get();
+            if (followUp != null) {
+                SwingUtilities.invokeLater(followUp);
+            }
+        });
+    }
 
-                } else if (!isRedTurn && blueStones.contains(nb) && !chain.contains(nb)) {
-                    chain.add(nb);
-                    line.add(nb);
+    /**
+     * Runs a change on the game worker and waits for it, after every change
+     * queued before it. Its follow-up runs straight away when called on the
+     * event dispatch thread, and is queued there otherwise.
+     *
+     * @param change the change; it returns its follow-up, or null if nothing changed
+     * @return whether anything changed
+     */
+    private boolean await(Supplier<Runnable> change) {
+        Runnable followUp;
+        if (Thread.currentThread() == workerThread) {
+            followUp = change.get();
+        } else {
+            try {
+                followUp = worker.submit(change::get).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
                 }
+                throw new IllegalStateException(e.getCause());
             }
         }
-
-        // made it so it can only capture if the chain is greater than 2 stones
-        if (chain.size() < 2) {
+        if (followUp == null) {
             return false;
         }
+        if (SwingUtilities.isEventDispatchThread()) {
+            followUp.run();
+        } else {
+            SwingUtilities.invokeLater(followUp);
+        }
+        return true;
+    }
+
+    /**
+     * Waits until every queued change has been applied and, unless called on
+     * the event dispatch thread, until their follow-ups have run there too.
+     */
+    void awaitIdle() throws InterruptedException {
+        await(() -> null);
+        if (!SwingUtilities.isEventDispatchThread()) {
+            try {
+                SwingUtilities.invokeAndWait(() -> { });
+            } catch (java.lang.reflect.InvocationTargetException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
 
-        ArrayList<Point> removeStones = new ArrayList<>();
-        for (Point stone : chain) {
+    /**
+     * Shows a message over the bottom of the board for a few seconds, without
+     * blocking input. A newer message replaces the one showing.
+     *
+     * @param text  the message
+     * @param color the colour of the text
+     */
+    void showNotice(String text, Color color) {
+        notice = text;
+        noticeColor = color;
+        noticeTimer.restart();
+        repaint(noticeBounds());
+    }
+
+    private void clearNotice() {
+        noticeTimer.stop();
+        if (notice != null) {
+            notice = null;
+            repaint(noticeBounds());
+        }
+    }
+
+    /**
+     * @return the message showing in the panel, or null
+     */
+    String notice() {
+        return notice;
+    }
+
+    /**
+     * Lets a computer player take one side. Passing null hands the side back to
+     * mouse clicks.
+     *
+     * @param side   {@link GameState#RED} or {@link GameState#BLUE}
+     * @param player the player, or null for a human
+     */
+    public void setComputerPlayer(int side, Player player) {
+        submit(() -> {
+            computerPlayers[side] = player;
+            requestComputerMove();
+            return null;
+        });
+    }
 
-            for (Point nb : getNeighborCenters(stone)) {
-                if (isRedTurn && blueStones.contains(nb) && !removeStones.contains(nb)) {
-                    removeStones.add(nb);
-                } else if (!isRedTurn && redStones.contains(nb) && !removeStones.contains(nb)) {
-                    removeStones.add(nb);
+    /**
+     * Starts a search if a computer player is to move. Runs on the game worker;
+     * the search runs on a copy of the position in a background thread so moves
+     * and painting carry on, and its move is played back on the game worker.
+     */
+    private void requestComputerMove() {
+        Player player = computerPlayers[state.sideToMove()];
+        if (player == null || gameOver || thinking || state.isTerminal()) {
+            return;
+        }
+        thinking = true;
+        int started = generation;
+        GameState position = state.copy();
+        Thread.ofPlatform().daemon().name("hexoust-search").start(() -> {
+            int cell;
+            try {
+                cell = player.chooseMove(position);
+            } catch (RuntimeException e) {
+                System.err.println(player.name() + " failed to move: " + e);
+                submit(() -> {
+                    thinking = false;
+                    return null;
+                });
+                return;
+            }
+            submit(() -> {
+                thinking = false;
+                if (started != generation) {
+                    requestComputerMove();
+                    return null;
+                }
+                String summary = searchLog ? player.lastSearchSummary() : null;
+                if (summary != null) {
+                    System.out.println(summary);
                 }
+                return playMove(cell);
+            });
+        });
+    }
 
+    /**
+     * Starts the confetti animation when the game is won.
+     * Confetti falls for 5 seconds, or until it has all left the panel, and then stops.
+     */
+    public void startConfettiAnimation() {
+        stopConfettiAnimation();
+        showConfetti = true;
+
+        // Create a bunch of random confetti in the top 100 pixels
+        confetti.spawn(confettiCount, getWidth(), 100);
+
+        int[] remaining = {CONFETTI_STEPS};
+        confettiAnimation = () -> {
+            confetti.step(getWidth(), getHeight());
+            if (--remaining[0] > 0 && !confetti.isEmpty()) {
+                return true;
             }
+            showConfetti = false;
+            confetti.clear();
+            confettiAnimation = null;
+            return false;
+        };
+        animations.start(confettiAnimation);
+    }
+
+    /**
+     * Stops a running confetti animation and removes its particles.
+     */
+    private void stopConfettiAnimation() {
+        if (confettiAnimation != null) {
+            animations.cancel(confettiAnimation);
+            confettiAnimation = null;
         }
+        showConfetti = false;
+        confetti.clear();
+    }
+    
+    /**
+     * Records every game from now on: finished games when they are won, and
+     * unfinished ones when the board is reset.
+     *
+     * @param recorder the archive to append to, or null to stop recording
+     */
+    public void setRecorder(GameArchiveWriter recorder) {
+        this.recorder = recorder;
+    }
 
-        for (Point p : removeStones) {
-            if (isRedTurn) {
-                blueStones.remove(p);
-            } else {
-                redStones.remove(p);
-            }
+    private void recordGame() {
+        GameArchiveWriter recorder = this.recorder;
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.append(state);
+        } catch (IOException e) {
+            System.err.println("Could not record the game: " + e.getMessage());
         }
-        repaint();
+    }
+
+    /**
+     * Sets how many confetti particles a win spawns.
+     *
+     * @param count the number of particles
+     */
+    public void setConfettiCount(int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("count must be non-negative");
+        confettiCount = count;
+    }
+
+    /**
+     * Sets whether each computer move prints its player's search summary,
+     * such as its depth and nodes per second, to standard output.
+     *
+     * @param enabled true to print the summaries
+     */
+    public void setSearchLog(boolean enabled) {
+        searchLog = enabled;
+    }
+
+    /**
+     * Resets the game by clearing all stones, resetting the turn, and repainting the board.
+     */
+    public void resetGame() {
+        await(this::reset);
+    }
+
+    private Runnable reset() {
+        if (!gameOver && state.moveCount() > 0) {
+            recordGame();
+        }
+        BoardSnapshot before = snapshot;
+        state.reset();
+        gameOver = false;
+        generation++;
+        publish(before);
+        requestComputerMove();
+        return () -> {
+            stopConfettiAnimation();
+            clearNotice();
+            repaint();
+        };
+    }
+
+    /**
+     * Checks and changes the color of stones based on capturing rules.
+     *
+     * @param center      The center point of the recently placed stone.
+     * @param isRedTurn   Whether the current turn belongs to the red player.
+     * @return True if any opponent stones were captured, otherwise false.
+     */
+    public boolean checkAndChangeColour(Point center, boolean isRedTurn) {
+        Integer cell = cellAtCenter.get(center);
+        if (cell == null) {
+            return false;
+        }
+        int[] captured = new int[1];
+        await(() -> {
+            captured[0] = state.captureFrom(cell, isRedTurn ? GameState.RED : GameState.BLUE);
+            return published(true);
+        });
 
         // Return true if any opponent pieces were captured.
-        return !removeStones.isEmpty();
+        return captured[0] > 0;
     }
 
     /**
@@ -626,50 +738,181 @@ public class HexGrid extends JPanel {
      * @return The center point of the hexagon.
      */
     Point getHexCenter(ArrayList<Point> hexagon) {
-        double sumX = 0;
-        double sumY = 0;
-        for (Point p : hexagon) {
-            sumX += p.x;
-            sumY += p.y;
-        }
-        return new Point(sumX / hexagon.size(), sumY / hexagon.size());
+        return CellGeometry.center(hexagon);
     }
 
     /**
-     * Retrieves the neighbor centers of a given hexagon center.
+     * Computes the polygon corners of every cell on a board.
      *
-     * @param center The center of the hexagon whose neighbors are to be found.
-     * @return A list of points representing the neighboring hexagons' centers.
+     * @param layout The layout used to convert cells to pixels.
+     * @param board  The board whose cells are converted.
+     * @return The corners of each cell, indexed by cell id.
      */
-    private ArrayList<Point> getNeighborCenters(Point center) {
-        ArrayList<Point> neighbors = new ArrayList<>();
-        for (ArrayList<Point> hexagon : grid) {
-            Point neighbor = getHexCenter(hexagon);
-            double distance = Math.sqrt(Math.pow(center.x - neighbor.x, 2) + Math.pow(center.y - neighbor.y, 2));
-            // Using 45 as the approximate center-to-center distance threshold
-            if (distance > 0 && distance <= 45) {
-                neighbors.add(neighbor);
-            }
+    private static ArrayList<ArrayList<Point>> polygonsOf(Layout layout, Board board) {
+        ArrayList<ArrayList<Point>> hexagons = new ArrayList<>();
+        for (int cell = 0; cell < board.size(); cell++) {
+            hexagons.add(layout.polygonCorners(board.cube(cell)));
+        }
+        return hexagons;
+    }
+
+    /**
+     * A live view of the pixel centers occupied by one player's stones. Adding a
+     * center places a stone on the corresponding cell without applying any rules.
+     * Reads see the latest published snapshot; changes wait for the game worker.
+     */
+    final class StoneView extends AbstractCollection<Point> {
+
+        private final int player;
+
+        private StoneView(int player) {
+            this.player = player;
+        }
+
+        @Override
+        public Iterator<Point> iterator() {
+            BoardSnapshot position = snapshot;
+            return new Iterator<>() {
+                private int next = position.nextStone(player, 0);
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public Point next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Point center = geometry.center(next);
+                    next = position.nextStone(player, next + 1);
+                    return center;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return snapshot.stoneCount(player);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            Integer cell = cellAtCenter.get(o);
+            return cell != null && snapshot.owner(cell) == player;
+        }
+
+        @Override
+        public boolean add(Point center) {
+            Integer cell = cellAtCenter.get(center);
+            return cell != null && await(() -> published(state.place(cell, player)));
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            Integer cell = cellAtCenter.get(o);
+            return cell != null && await(() -> published(state.owner(cell) == player && state.clear(cell)));
+        }
+
+        @Override
+        public void clear() {
+            await(() -> {
+                boolean cleared = false;
+                for (int cell = state.nextStone(player, 0); cell >= 0; cell = state.nextStone(player, cell + 1)) {
+                    cleared |= state.clear(cell);
+                }
+                return published(cleared);
+            });
         }
-        return neighbors;
     }
 
     /**
      * Renders the game board and its elements, including hexagons, stones, and UI elements.
+     * Everything that does not change during a game comes from a cached layer;
+     * only the stones, turn indicator and confetti are drawn on every repaint,
+     * and stones outside the repaint clip are skipped.
      *
      * @param g The Graphics object used for rendering.
      */
     @Override
     protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
         super.paintComponent(g);
         Graphics2D g2 = (Graphics2D) g;
+        g2.drawImage(boardLayer(), 0, 0, null);
+
+        // Draw player stones (filling entire hexagon)
+        BoardSnapshot position = snapshot;
+        Rectangle clip = g2.getClipBounds();
+        for (int player = GameState.RED; player <= GameState.BLUE; player++) {
+            for (int cell = position.nextStone(player, 0); cell >= 0; cell = position.nextStone(player, cell + 1)) {
+                if (clip == null || geometry.bounds(cell).intersects(clip)) {
+                    geometry.fillStone(g2, cell, player);
+                }
+            }
+        }
+
+        // Draw turn indicator
+        int circleX = 30;
+        int circleY = getHeight() - 50;
+        int circleDiameter = 30;
+
+        g.setColor(position.side == GameState.RED ? Color.RED : Color.BLUE);
+        g.fillOval(circleX, circleY, circleDiameter, circleDiameter);
+
+        g.setColor(Color.BLACK);
+        g.setFont(TURN_FONT);
+        g.drawString("To Make A Move", circleX + circleDiameter + 10, circleY + 23);
+
+        if (notice != null) {
+            Rectangle area = noticeBounds();
+            g2.setColor(new Color(255, 255, 255, 210));
+            g2.fillRoundRect(area.x, area.y, area.width, area.height, 16, 16);
+            g2.setColor(noticeColor);
+            g2.setFont(NOTICE_FONT);
+            FontMetrics fm = g2.getFontMetrics();
+            g2.drawString(notice, area.x + (area.width - fm.stringWidth(notice)) / 2,
+                    area.y + (area.height + fm.getAscent() - fm.getDescent()) / 2);
+        }
 
+        if (showConfetti) {
+            confetti.draw(g2, getWidth(), getHeight());
+        }
+        metrics.record(MoveMetrics.Phase.RENDER, -1, start);
+    }
+
+    /**
+     * Returns the static part of the scene, rendering it again only when the
+     * panel has been resized. The image is created compatible with the screen
+     * so drawing it is a straight copy.
+     */
+    private BufferedImage boardLayer() {
+        int width = Math.max(1, getWidth());
+        int height = Math.max(1, getHeight());
+        if (boardLayer != null && boardLayer.getWidth() == width && boardLayer.getHeight() == height) {
+            return boardLayer;
+        }
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        boardLayer = config != null
+                ? config.createCompatibleImage(width, height)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = boardLayer.createGraphics();
+        try {
+            paintBoardLayer(g2, width, height);
+        } finally {
+            g2.dispose();
+        }
+        return boardLayer;
+    }
+
+    private void paintBoardLayer(Graphics2D g2, int width, int height) {
         // Draw the background image (sky)
         if (backgroundImage != null) {
-            g2.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
+            g2.drawImage(backgroundImage, 0, 0, width, height, this);
         } else {
             g2.setColor(Color.CYAN); // Fallback if image fails to load
-            g2.fillRect(0, 0, getWidth(), getHeight());
+            g2.fillRect(0, 0, width, height);
         }
 
         g2.setColor(Color.WHITE);
@@ -682,22 +925,24 @@ public class HexGrid extends JPanel {
         g2.drawString("Hamza Yasin", 750, 200);
         g2.drawString("Charlie Zhang", 750, 225);
 
-
-        // Draw hex grid with texture
-        for (ArrayList<Point> hexagon : grid) {
-            int[] xPoints = new int[hexagon.size()];
-            int[] yPoints = new int[hexagon.size()];
-
-            for (int i = 0; i < hexagon.size(); i++) {
-                xPoints[i] = (int) Math.round(hexagon.get(i).x);
-                yPoints[i] = (int) Math.round(hexagon.get(i).y);
+        // Draw hex grid with texture, skipping cells outside the panel
+        g2.setStroke(new BasicStroke(3));
+        Rectangle panel = new Rectangle(-3, -3, width + 6, height + 6);
+        BufferedImage subImage = null;
+        for (int cell = 0; cell < geometry.size(); cell++) {
+            Polygon hexPolygon = geometry.polygon(cell);
+            Rectangle hexBounds = geometry.bounds(cell);
+            if (!hexBounds.intersects(panel)) {
+                continue;
             }
-            Polygon hexPolygon = new Polygon(xPoints, yPoints, hexagon.size());
             // Fill hexagon with grass texture
             if (Texture != null) {
-
-                Rectangle hexBounds = hexPolygon.getBounds();
-                BufferedImage subImage = Texture.getSubimage(100, 100, Math.min(Texture.getWidth(), hexBounds.width), Math.min(Texture.getHeight(), hexBounds.height));
+                // Cells of one layout share a size, so the texture tile is cut once
+                int tileWidth = Math.min(Texture.getWidth() - 100, hexBounds.width);
+                int tileHeight = Math.min(Texture.getHeight() - 100, hexBounds.height);
+                if (subImage == null || subImage.getWidth() != tileWidth || subImage.getHeight() != tileHeight) {
+                    subImage = Texture.getSubimage(100, 100, tileWidth, tileHeight);
+                }
                 TexturePaint grassPaint = new TexturePaint(subImage, hexBounds);
                 g2.setPaint(grassPaint);
             } else {
@@ -707,31 +952,9 @@ public class HexGrid extends JPanel {
             g2.fillPolygon(hexPolygon); // Fill hex with grass
             // Draw hexagon border
             g2.setColor(Color.BLACK);
-            g2.setStroke(new BasicStroke(3));
-            g2.drawPolygon(xPoints, yPoints, hexagon.size());
-        }
-        Color customBlue = new Color(48, 30, 165);
-        Color customRed = new Color(195, 0, 0);
-        // Draw player stones (filling entire hexagon)
-        for (Point p : redStones) {
-            fillHexWithColor(g2, p, customRed);
-        }
-        for (Point p : blueStones) {
-            fillHexWithColor(g2, p, customBlue);
+            g2.drawPolygon(hexPolygon);
         }
 
-        // Draw turn indicator
-        int circleX = 30;
-        int circleY = getHeight() - 50;
-        int circleDiameter = 30;
-
-        g.setColor(isRedTurn ? Color.RED : Color.BLUE);
-        g.fillOval(circleX, circleY, circleDiameter, circleDiameter);
-
-        g.setColor(Color.BLACK);
-        g.setFont(new Font("SansSerif", Font.BOLD, 20));
-        g.drawString("To Make A Move", circleX + circleDiameter + 10, circleY + 23);
-
         if (cloudButtonImage != null) {
             g2.drawImage(cloudButtonImage, cloudButtonBounds.x, cloudButtonBounds.y,
                     cloudButtonBounds.width, cloudButtonBounds.height, this);
@@ -744,65 +967,120 @@ public class HexGrid extends JPanel {
             int textX = cloudButtonBounds.x + (cloudButtonBounds.width - textWidth) / 2;
             int textY = cloudButtonBounds.y + (cloudButtonBounds.height + fm.getAscent()) / 2 - 5;
             g2.drawString(text, textX, textY);
-
-            if(showConfetti)
-
-            {
-                for (Confetti c : confettiList) {
-                    c.draw(g2);
-                }
-            }
-
         }
     }
 
-
     /**
-     * Fills a hexagon with the specified color.
+     * Main method to run the HexGrid application. A first argument of
+     * {@code perft} runs the headless move generator benchmark instead,
+     * {@code tournament} runs headless games between computer players,
+     * {@code archive} summarises a directory of recorded games,
+     * {@code server} hosts games for clients over TCP,
+     * {@code tablebase} solves a small board and writes its tablebase, and
+     * {@code book} builds an opening book from recorded games.
      *
-     * @param g2     The Graphics2D object used for rendering.
-     * @param center The center point of the hexagon to fill.
-     * @param color  The color to fill the hexagon with.
+     * @param args Command-line arguments specifying size and origin coordinates.
      */
-    // Helper function to fill a hex with a given color
-    private void fillHexWithColor(Graphics2D g2, Point center, Color color) {
-        for (ArrayList<Point> hexagon : grid) {
-            Point hexCenter = getHexCenter(hexagon);
-            if (hexCenter.equals(center)) {
-                int[] xPoints = new int[hexagon.size()];
-                int[] yPoints = new int[hexagon.size()];
-
-                for (int i = 0; i < hexagon.size(); i++) {
-                    xPoints[i] = (int) Math.round(hexagon.get(i).x);
-                    yPoints[i] = (int) Math.round(hexagon.get(i).y);
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("perft")) {
+            Perft.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("tournament")) {
+            Tournament.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("archive")) {
+            GameArchive.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("server")) {
+            GameServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("tablebase")) {
+            EndgameSolver.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("book")) {
+            OpeningBookBuilder.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length < 3) {
+            System.err.println("java HexGrid <size> <originx> <originy> [--radius=<radius>] [--shape=<shape>]");
+            System.err.println("    [--red=<player>] [--blue=<player>] [--red-book=<file>] [--blue-book=<file>]");
+            System.err.println("    [--confetti=<count>] [--record=<dir>] [--metrics=<millis>] [--metrics-csv=<file>] [--search-log]");
+            System.err.println("  shapes: hexagon, rhombus, triangle");
+            System.err.println("  players: human, random, mcts[:millis], alphabeta[:millis], tablebase:<file>");
+            System.exit(1);
+        }
+        String[] specs = {"human", "human"};
+        String[] books = new String[2];
+        int confettiCount = 500;
+        String recordTo = null;
+        int radius = 6;
+        Board.Shape shape = Board.Shape.HEXAGON;
+        long metricsMillis = 0;
+        String metricsCsv = null;
+        boolean searchLog = false;
+        for (int i = 3; i < args.length; i++) {
+            if (args[i].startsWith("--radius=")) {
+                try {
+                    radius = Integer.parseInt(args[i].substring(9));
+                } catch (NumberFormatException e) {
+                    System.err.println("Problems parsing the radius.");
+                    System.exit(1);
                 }
-
-                GradientPaint gradient = new GradientPaint(
-                        (float) xPoints[0], (float) yPoints[0], color.brighter(),
-                        (float) xPoints[3], (float) yPoints[3], color.darker()
-                );
-
-                g2.setPaint(gradient);
-                g2.fillPolygon(xPoints, yPoints, hexagon.size());
-
-                g2.setColor(color.darker());
-                g2.setStroke(new BasicStroke(2));
-                g2.drawPolygon(xPoints, yPoints, hexagon.size());
-                break;
-
-
+            } else if (args[i].startsWith("--shape=")) {
+                try {
+                    shape = Board.Shape.valueOf(args[i].substring(8).toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Unknown shape: " + args[i].substring(8));
+                    System.exit(1);
+                }
+            } else if (args[i].startsWith("--red-book=")) {
+                books[GameState.RED] = args[i].substring(11);
+            } else if (args[i].startsWith("--blue-book=")) {
+                books[GameState.BLUE] = args[i].substring(12);
+            } else if (args[i].startsWith("--red=")) {
+                specs[GameState.RED] = args[i].substring(6);
+            } else if (args[i].startsWith("--blue=")) {
+                specs[GameState.BLUE] = args[i].substring(7);
+            } else if (args[i].startsWith("--record=")) {
+                recordTo = args[i].substring(9);
+            } else if (args[i].startsWith("--metrics=")) {
+                try {
+                    metricsMillis = Long.parseLong(args[i].substring(10));
+                } catch (NumberFormatException e) {
+                    System.err.println("Problems parsing the metrics period.");
+                    System.exit(1);
+                }
+            } else if (args[i].startsWith("--metrics-csv=")) {
+                metricsCsv = args[i].substring(14);
+            } else if (args[i].equals("--search-log")) {
+                searchLog = true;
+            } else if (args[i].startsWith("--confetti=")) {
+                try {
+                    confettiCount = Integer.parseInt(args[i].substring(11));
+                } catch (NumberFormatException e) {
+                    System.err.println("Problems parsing the confetti count.");
+                    System.exit(1);
+                }
+            } else {
+                System.err.println("Unknown option: " + args[i]);
+                System.exit(1);
             }
         }
-    }
-
-    /**
-     * Main method to run the HexGrid application.
-     *
-     * @param args Command-line arguments specifying size and origin coordinates.
-     */
-    public static void main(String[] args) {
-        if (args.length != 3) {
-            System.err.println("java HexGrid <size> <originx> <originy>");
+        Player[] players = new Player[2];
+        try {
+            for (int side = GameState.RED; side <= GameState.BLUE; side++) {
+                players[side] = Players.create(specs[side], System.nanoTime() + side);
+                if (books[side] != null) {
+                    players[side] = Players.withBook(players[side], books[side]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
             System.exit(1);
         }
 
@@ -820,33 +1098,63 @@ public class HexGrid extends JPanel {
                 new Point(size, size),
                 new Point(originx, originy));
 
-        int baseN = 6;
-        ArrayList<ArrayList<Point>> grid = new ArrayList<>();
-        for (int q = -baseN; q <= baseN; q++) {
-            for (int r = -baseN; r <= baseN; r++) {
-                for (int s = -baseN; s <= baseN; s++) {
-                    if ((q + r + s) == 0) {
-                        HexCube h = new HexCube(q, r, s);
-                        ArrayList<Point> corners = flat.polygonCorners(h);
-                        grid.add(corners);
-                    }
-                }
-            }
+        Board board = null;
+        try {
+            board = Board.of(shape, radius);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
         }
 
         JFrame frame = new JFrame("HexGrid");
-        HexGrid panel = new HexGrid(grid);
+        HexGrid panel = new HexGrid(flat, board);
+        panel.setConfettiCount(confettiCount);
+        panel.setSearchLog(searchLog);
+        if (metricsCsv != null) {
+            try {
+                panel.metrics.startDump(new java.io.PrintStream(metricsCsv, java.nio.charset.StandardCharsets.UTF_8),
+                        metricsMillis > 0 ? metricsMillis : 5000, true);
+            } catch (IOException e) {
+                System.err.println("Could not open the metrics file: " + e.getMessage());
+                System.exit(1);
+            }
+        } else if (metricsMillis > 0) {
+            panel.metrics.startDump(System.out, metricsMillis, false);
+        }
+        if (recordTo != null) {
+            try {
+                GameArchiveWriter recorder = new GameArchiveWriter(java.nio.file.Path.of(recordTo));
+                panel.setRecorder(recorder);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        recorder.close();
+                    } catch (IOException e) {
+                        System.err.println("Could not close the game archive: " + e.getMessage());
+                    }
+                }));
+            } catch (IOException e) {
+                System.err.println("Could not open the game archive: " + e.getMessage());
+                System.exit(1);
+            }
+        }
         frame.add(panel);
         frame.setSize(1100, 768);
 
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setVisible(true);
 
+        panel.setComputerPlayer(GameState.RED, players[GameState.RED]);
+        panel.setComputerPlayer(GameState.BLUE, players[GameState.BLUE]);
+
         Scanner scanner = new Scanner(System.in);
         while (true) {
-            System.out.print("Type quit to exit: ");
+            System.out.print("Type undo, redo or quit: ");
             String input = scanner.next().toLowerCase();
-            if (input.equals("quit")) {
+            if (input.equals("undo")) {
+                panel.undoMove();
+            } else if (input.equals("redo")) {
+                panel.redoMove();
+            } else if (input.equals("quit")) {
                 System.out.println("Exiting Game...");
                 System.out.println("GoodBye :)");
                 frame.dispose();
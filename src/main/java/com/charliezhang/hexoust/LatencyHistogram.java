@@ -0,0 +1,144 @@
+package com.charliezhang.hexoust;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size histogram of latencies in nanoseconds, laid out like
+ * HdrHistogram: values below 64 get a bucket each, and every power of two
+ * above that is split into 32 linear sub-buckets, so any recorded value is
+ * reported to within about 3%. Recording is one array increment, allocates
+ * nothing and is safe from any thread, so percentiles can be read while the
+ * event dispatch thread records.
+ */
+final class LatencyHistogram {
+
+    /** Sub-buckets per power of two, as a power of two. */
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Values below this are counted exactly. */
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+
+    private static final int BUCKETS = LINEAR + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Counts one value.
+     *
+     * @param nanos the latency; negative values are counted as 0
+     */
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * @return the number of values recorded
+     */
+    long count() {
+        return total.get();
+    }
+
+    /**
+     * @return the largest value recorded, exactly, or 0 if there is none
+     */
+    long max() {
+        return max.get();
+    }
+
+    /**
+     * @return the mean of the values recorded, or 0 if there is none
+     */
+    double mean() {
+        long n = total.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Returns the value below which the given fraction of the recorded values
+     * fall, rounded up to the top of its bucket and capped at the maximum.
+     *
+     * @param fraction the fraction, e.g. 0.99
+     * @return the percentile, or 0 if nothing was recorded
+     */
+    long percentile(double fraction) {
+        long n = total.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestEquivalent(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Clears every count.
+     */
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Moves every count into another histogram and clears this one. Each
+     * bucket is taken with a single atomic swap, so a value recorded
+     * meanwhile is counted in one histogram or the other, never lost.
+     *
+     * @param into the histogram that receives the counts
+     */
+    void drainTo(LatencyHistogram into) {
+        long drained = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = counts.getAndSet(i, 0);
+            if (count != 0) {
+                into.counts.addAndGet(i, count);
+                drained += count;
+            }
+        }
+        // The total follows the buckets taken, so the drained counts stay consistent
+        total.addAndGet(-drained);
+        into.total.addAndGet(drained);
+        into.sum.addAndGet(sum.getAndSet(0));
+        long largest = max.getAndSet(0);
+        into.max.accumulateAndGet(largest, Math::max);
+    }
+
+    static int index(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR + (shift - 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return the largest value that is counted in the given bucket
+     */
+    static long highestEquivalent(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+        long sub = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
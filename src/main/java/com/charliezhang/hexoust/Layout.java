@@ -0,0 +1,73 @@
+package com.charliezhang.hexoust;
+
+import java.util.ArrayList;
+
+class Layout {
+    public Layout(Orientation orientation, Point size, Point origin) {
+        this.orientation = orientation;
+        this.size = size;
+        this.origin = origin;
+    }
+    public final Orientation orientation;
+    public final Point size;
+    public final Point origin;
+
+    static public Orientation flat = new Orientation(3.0 / 2.0, 0.0, Math.sqrt(3.0) / 2.0, Math.sqrt(3.0),
+            2.0 / 3.0, 0.0, -1.0 / 3.0, Math.sqrt(3.0) / 3.0, 0.0);
+
+    /**
+     * Converts a HexCube to a pixel Point.
+     *
+     * @param h the HexCube to convert
+     * @return the corresponding Point in pixel coordinates
+     */
+    public Point hexToPixel(HexCube h) {
+        Orientation M = orientation;
+        double x = (M.f0 * h.q + M.f1 * h.r) * size.x;
+        double y = (M.f2 * h.q + M.f3 * h.r) * size.y;
+        return new Point(x + origin.x, y + origin.y);
+    }
+
+
+    /**
+     * Converts a pixel Point to a FractionalHexCube.
+     *
+     * @param p the Point in pixel coordinates
+     * @return the corresponding FractionalHexCube
+     */
+    public FractionalHexCube pixelToHex(Point p) {
+        Orientation M = orientation;
+        Point pt = new Point((p.x - origin.x) / size.x, (p.y - origin.y) / size.y);
+        double q = M.b0 * pt.x + M.b1 * pt.y;
+        double r = M.b2 * pt.x + M.b3 * pt.y;
+        return new FractionalHexCube(q, r, -q - r);
+    }
+
+    /**
+     * Calculates the offset for a hex corner.
+     *
+     * @param corner the corner index (0 to 5)
+     * @return the offset Point
+     */
+    public Point hexCornerOffset(int corner) {
+        Orientation M = orientation;
+        double angle = 2.0 * Math.PI * (M.start_angle - corner) / 6.0;
+        return new Point(size.x * Math.cos(angle), size.y * Math.sin(angle));
+    }
+
+    /**
+     * Calculates the polygon corners for a HexCube.
+     *
+     * @param h the HexCube
+     * @return an ArrayList of Points representing the polygon corners
+     */
+    public ArrayList<Point> polygonCorners(HexCube h) {
+        ArrayList<Point> corners = new ArrayList<>();
+        Point center = hexToPixel(h);
+        for (int i = 0; i < 6; i++) {
+            Point offset = hexCornerOffset(i);
+            corners.add(new Point(center.x + offset.x, center.y + offset.y));
+        }
+        return corners;
+    }
+}
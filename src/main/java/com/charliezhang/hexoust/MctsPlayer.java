@@ -0,0 +1,323 @@
+package com.charliezhang.hexoust;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Monte Carlo Tree Search player using UCT selection and random playouts.
+ * <p>
+ * The search is tree-parallel: every worker thread descends the same tree, and a
+ * virtual loss is added to each node on a worker's path until its playout is
+ * backed up, which steers the other workers towards different lines.
+ * <p>
+ * Each node records the player who made the move leading to it. Because a capture
+ * keeps the turn, that is not always the opposite of its parent's mover, so every
+ * node's score is counted from its own mover's point of view.
+ */
+public final class MctsPlayer implements Player {
+
+    private static final VarHandle VISITS;
+    private static final VarHandle SCORE;
+    private static final VarHandle IN_FLIGHT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            VISITS = lookup.findVarHandle(Node.class, "visits", int.class);
+            SCORE = lookup.findVarHandle(Node.class, "score", long.class);
+            IN_FLIGHT = lookup.findVarHandle(Node.class, "inFlight", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long budgetMillis;
+    private final long playoutLimit;
+    private final double exploration;
+    private final int threads;
+    private final int virtualLoss;
+    private final long seed;
+
+    private ExecutorService pool;
+    private int searches;
+
+    private volatile long lastPlayouts;
+    private volatile long lastNanos;
+    private volatile int lastTreeSize;
+
+    /**
+     * Creates a player that searches for the given time on every core.
+     *
+     * @param budgetMillis the thinking time per move
+     */
+    public MctsPlayer(long budgetMillis) {
+        this(budgetMillis, 0, Math.sqrt(2), Runtime.getRuntime().availableProcessors(), 3, System.nanoTime());
+    }
+
+    /**
+     * Creates a fully configured player. The search stops when either limit is reached.
+     *
+     * @param budgetMillis the thinking time per move
+     * @param playoutLimit the maximum number of playouts per move, or 0 for no limit
+     * @param exploration  the UCT exploration constant
+     * @param threads      the number of worker threads
+     * @param virtualLoss  the number of losses a node is charged while a worker is below it
+     * @param seed         the seed of the playout generators
+     */
+    public MctsPlayer(long budgetMillis, long playoutLimit, double exploration, int threads, int virtualLoss, long seed) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+        this.budgetMillis = budgetMillis;
+        this.playoutLimit = playoutLimit;
+        this.exploration = exploration;
+        this.threads = threads;
+        this.virtualLoss = virtualLoss;
+        this.seed = seed;
+    }
+
+    @Override
+    public String name() {
+        return "mcts";
+    }
+
+    @Override
+    public synchronized int chooseMove(GameState state) {
+        int[] moves = state.legalMoves();
+        if (moves.length == 0)
+            throw new IllegalArgumentException("No legal move to choose");
+        if (moves.length == 1) {
+            return moves[0];
+        }
+
+        Node root = new Node(null, -1, GameState.NONE);
+        long start = System.nanoTime();
+        long deadline = start + budgetMillis * 1_000_000L;
+        AtomicLong playouts = new AtomicLong();
+        AtomicLong nodes = new AtomicLong(1);
+        int search = searches++;
+
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = new SplittableRandom(seed ^ (0x9E3779B97F4A7C15L * (search * 1024L + t + 1)));
+            GameState working = state.copy();
+            workers.add(() -> {
+                int[] buffer = new int[state.board().size()];
+                long done;
+                do {
+                    iterate(root, working, buffer, random, nodes);
+                    done = playouts.incrementAndGet();
+                } while ((playoutLimit == 0 || done < playoutLimit) && System.nanoTime() < deadline);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> f : pool().invokeAll(workers)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed", e.getCause());
+        }
+
+        lastPlayouts = playouts.get();
+        lastNanos = Math.max(1, System.nanoTime() - start);
+        lastTreeSize = (int) Math.min(Integer.MAX_VALUE, nodes.get());
+
+        Node best = null;
+        for (int i = 0; i < root.childCount; i++) {
+            Node child = root.children[i];
+            if (best == null || child.visits > best.visits) {
+                best = child;
+            }
+        }
+        return best != null ? best.move : moves[0];
+    }
+
+    /**
+     * @return the number of playouts run by the last search
+     */
+    public long lastPlayouts() {
+        return lastPlayouts;
+    }
+
+    /**
+     * @return the playout rate of the last search
+     */
+    public double playoutsPerSecond() {
+        return lastPlayouts * 1e9 / lastNanos;
+    }
+
+    /**
+     * @return a one-line summary of the last search
+     */
+    @Override
+    public String lastSearchSummary() {
+        return String.format("mcts: %d playouts in %.0f ms (%.0f playouts/s, %d threads, %d nodes)",
+                lastPlayouts, lastNanos / 1e6, playoutsPerSecond(), threads, lastTreeSize);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+
+    private ExecutorService pool() {
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "mcts-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return pool;
+    }
+
+    /**
+     * Runs one selection, expansion, playout and backup from the root. The
+     * working position is returned to the root position afterwards.
+     */
+    private void iterate(Node root, GameState state, int[] buffer, SplittableRandom random, AtomicLong nodes) {
+        Node node = root;
+        while (true) {
+            Node[] children = node.children;
+            if (children == null) {
+                synchronized (node) {
+                    if (node.children == null) {
+                        int[] moves = new int[state.board().size()];
+                        int count = state.legalMoves(moves);
+                        node.moves = Arrays.copyOf(moves, count);
+                        node.children = new Node[count];
+                    }
+                }
+                children = node.children;
+            }
+            if (children.length == 0) {
+                break;
+            }
+
+            Node next = null;
+            if (node.childCount < children.length) {
+                synchronized (node) {
+                    int expanded = node.childCount;
+                    if (expanded < children.length) {
+                        next = new Node(node, node.moves[expanded], state.sideToMove());
+                        children[expanded] = next;
+                        node.childCount = expanded + 1;
+                        nodes.incrementAndGet();
+                    }
+                }
+            }
+            if (next == null) {
+                next = select(node);
+            }
+            IN_FLIGHT.getAndAdd(next, 1);
+            state.play(next.move);
+            node = next;
+            if (node.visits == 0) {
+                break;
+            }
+        }
+
+        int winner = playout(state, buffer, random);
+        while (state.moveCount() > 0) {
+            state.undo();
+        }
+
+        for (Node n = node; n != null; n = n.parent) {
+            VISITS.getAndAdd(n, 1);
+            if (n.parent != null) {
+                IN_FLIGHT.getAndAdd(n, -1);
+            }
+            if (winner == GameState.NONE) {
+                SCORE.getAndAdd(n, 1L);
+            } else if (winner == n.mover) {
+                SCORE.getAndAdd(n, 2L);
+            }
+        }
+    }
+
+    /**
+     * Picks the expanded child with the highest UCT value, counting workers
+     * currently below a child as losses.
+     */
+    private Node select(Node node) {
+        double logParent = Math.log(Math.max(1, node.visits));
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        int count = node.childCount;
+        for (int i = 0; i < count; i++) {
+            Node child = node.children[i];
+            double visits = child.visits + (double) child.inFlight * virtualLoss;
+            if (visits == 0) {
+                return child;
+            }
+            double value = child.score / (2.0 * visits) + exploration * Math.sqrt(logParent / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Plays random moves to the end of the game, or until a ply cap is reached,
+     * in which case the player with more stones is taken as the winner.
+     */
+    private static int playout(GameState state, int[] buffer, SplittableRandom random) {
+        int cap = 4 * state.board().size();
+        for (int plies = 0; plies < cap; plies++) {
+            int count = state.legalMoves(buffer);
+            if (count == 0) {
+                break;
+            }
+            state.play(buffer[random.nextInt(count)]);
+        }
+        int winner = state.winner();
+        if (winner != GameState.NONE) {
+            return winner;
+        }
+        int red = state.stoneCount(GameState.RED);
+        int blue = state.stoneCount(GameState.BLUE);
+        return red > blue ? GameState.RED : blue > red ? GameState.BLUE : GameState.NONE;
+    }
+
+    /**
+     * A node of the shared search tree. Statistics are updated atomically
+     * through the VarHandles above; children are published by the volatile
+     * {@code childCount} write after the array store.
+     */
+    private static final class Node {
+        final Node parent;
+        final int move;
+        final int mover;
+
+        int[] moves;
+        volatile Node[] children;
+        volatile int childCount;
+
+        volatile int visits;
+        volatile long score;
+        volatile int inFlight;
+
+        Node(Node parent, int move, int mover) {
+            this.parent = parent;
+            this.move = move;
+            this.mover = mover;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.charliezhang.hexoust;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of each phase of the move pipeline, with counters of the rules
+ * engine's work.
+ * <p>
+ * Every phase is recorded into its own {@link LatencyHistogram} and, while a
+ * flight recording is running, emitted as a {@code hexoust.MovePhase} JFR
+ * event; every move also emits one {@code hexoust.Move} event with its cell,
+ * captures and engine work. With no recording running an event costs one
+ * enabled check. Histograms can be dumped periodically as text or CSV; each
+ * dump covers the interval since the previous one, as the counts are moved out
+ * atomically while moves keep being recorded.
+ */
+final class MoveMetrics {
+
+    /** The stages a move goes through, from click to pixels. */
+    enum Phase {
+        /** Finding the cell under the mouse. */
+        HIT_TEST,
+        /** Checking the placement is legal. */
+        VALIDATION,
+        /** Placing the stone and applying its captures. */
+        CAPTURE,
+        /** Painting the panel. */
+        RENDER
+    }
+
+    @Name("hexoust.MovePhase")
+    @Label("Move Phase")
+    @Category("HexOust")
+    @Description("One phase of handling a move")
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Cell")
+        int cell;
+
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+    }
+
+    @Name("hexoust.Move")
+    @Label("Move")
+    @Category("HexOust")
+    @Description("A move played on the board")
+    static final class MoveEvent extends Event {
+        @Label("Cell")
+        int cell;
+
+        @Label("Captures")
+        int captures;
+
+        @Label("Neighbour Reads")
+        long neighborReads;
+
+        @Label("Stones Scanned")
+        long stonesScanned;
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[PHASES.length];
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder neighborReads = new LongAdder();
+    private final LongAdder stonesScanned = new LongAdder();
+
+    private ScheduledExecutorService dumper;
+
+    MoveMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records a phase that started at the given time and ends now.
+     *
+     * @param phase the phase
+     * @param cell  the cell being played, or -1
+     * @param start the {@link System#nanoTime()} the phase started at
+     */
+    void record(Phase phase, int cell, long start) {
+        long latency = System.nanoTime() - start;
+        histograms[phase.ordinal()].record(latency);
+        PhaseEvent event = new PhaseEvent();
+        if (event.isEnabled()) {
+            event.phase = phase.name();
+            event.cell = cell;
+            event.latency = latency;
+            event.commit();
+        }
+    }
+
+    /**
+     * Counts a move and the engine work it took.
+     *
+     * @param cell          the cell played
+     * @param captures      the stones it captured
+     * @param neighborReads the neighbour table entries read for it
+     * @param stonesScanned the stones visited for it
+     */
+    void move(int cell, int captures, long neighborReads, long stonesScanned) {
+        moves.increment();
+        this.neighborReads.add(neighborReads);
+        this.stonesScanned.add(stonesScanned);
+        MoveEvent event = new MoveEvent();
+        if (event.isEnabled()) {
+            event.cell = cell;
+            event.captures = captures;
+            event.neighborReads = neighborReads;
+            event.stonesScanned = stonesScanned;
+            event.commit();
+        }
+    }
+
+    /**
+     * @param phase the phase
+     * @return the histogram of the phase's latencies since the last reset
+     */
+    LatencyHistogram histogram(Phase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    /**
+     * @return the column names of {@link #csvRow()}
+     */
+    static String csvHeader() {
+        StringBuilder header = new StringBuilder("time_ms,moves,neighbor_reads,stones_scanned");
+        for (Phase phase : PHASES) {
+            String name = phase.name().toLowerCase(Locale.ROOT);
+            for (String column : new String[] {"count", "mean_us", "p50_us", "p99_us", "p999_us", "max_us"}) {
+                header.append(',').append(name).append('_').append(column);
+            }
+        }
+        return header.toString();
+    }
+
+    /**
+     * @return one CSV line of the counts and latencies since the last reset
+     */
+    String csvRow() {
+        StringBuilder row = new StringBuilder();
+        row.append(System.currentTimeMillis()).append(',').append(moves.sum())
+                .append(',').append(neighborReads.sum()).append(',').append(stonesScanned.sum());
+        for (LatencyHistogram h : histograms) {
+            row.append(String.format(Locale.ROOT, ",%d,%.1f,%.1f,%.1f,%.1f,%.1f", h.count(), h.mean() / 1e3,
+                    h.percentile(0.5) / 1e3, h.percentile(0.99) / 1e3, h.percentile(0.999) / 1e3, h.max() / 1e3));
+        }
+        return row.toString();
+    }
+
+    /**
+     * @return a table of the counts and latencies since the last reset
+     */
+    String report() {
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "%d moves, %d neighbour reads, %d stones scanned%n", moves.sum(), neighborReads.sum(), stonesScanned.sum()));
+        report.append(String.format(Locale.ROOT, "%-11s %8s %9s %9s %9s %9s %9s%n",
+                "phase", "count", "mean us", "p50 us", "p99 us", "p99.9 us", "max us"));
+        for (Phase phase : PHASES) {
+            LatencyHistogram h = histograms[phase.ordinal()];
+            report.append(String.format(Locale.ROOT, "%-11s %8d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    phase.name().toLowerCase(Locale.ROOT), h.count(), h.mean() / 1e3, h.percentile(0.5) / 1e3,
+                    h.percentile(0.99) / 1e3, h.percentile(0.999) / 1e3, h.max() / 1e3));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Clears every histogram and counter.
+     */
+    void reset() {
+        for (LatencyHistogram h : histograms) {
+            h.reset();
+        }
+        moves.reset();
+        neighborReads.reset();
+        stonesScanned.reset();
+    }
+
+    /**
+     * Moves every histogram count and counter into another set of metrics and
+     * clears them here. Nothing recorded concurrently is lost: it lands in one
+     * set or the other.
+     *
+     * @param into the metrics that receive the counts
+     */
+    void drainTo(MoveMetrics into) {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i].drainTo(into.histograms[i]);
+        }
+        into.moves.add(moves.sumThenReset());
+        into.neighborReads.add(neighborReads.sumThenReset());
+        into.stonesScanned.add(stonesScanned.sumThenReset());
+    }
+
+    /**
+     * Writes the metrics on a background thread every period, moving them out
+     * first so each dump covers one interval. A CSV dump starts with a header.
+     *
+     * @param out          where to write
+     * @param periodMillis the time between dumps
+     * @param csv          CSV lines rather than a text table
+     */
+    synchronized void startDump(PrintStream out, long periodMillis, boolean csv) {
+        if (dumper != null)
+            throw new IllegalStateException("Already dumping");
+        if (csv) {
+            out.println(csvHeader());
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "move-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        MoveMetrics interval = new MoveMetrics();
+        dumper.scheduleAtFixedRate(() -> {
+            interval.reset();
+            drainTo(interval);
+            out.print(csv ? interval.csvRow() + System.lineSeparator() : interval.report());
+            out.flush();
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+}
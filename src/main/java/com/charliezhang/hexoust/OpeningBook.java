@@ -0,0 +1,194 @@
+package com.charliezhang.hexoust;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A read-only, memory-mapped opening book: how often each move was played in
+ * the first plies of recorded games and how often the side that played it went
+ * on to win. Books are written by {@link OpeningBookBuilder}.
+ * <p>
+ * A book file is a 24 byte header followed by four arrays of one entry per
+ * known move:
+ * <pre>
+ *   int     magic "HXB1"
+ *   int     version
+ *   int     number of cells on the board
+ *   int     fingerprint of the board's adjacency
+ *   long    number of moves
+ *   long[]  canonical hash of the position the move was played in, ascending
+ *   int[]   the move, in the canonical frame of its position
+ *   int[]   games in which the move was played
+ *   int[]   of those, games won by the side that played it
+ * </pre>
+ * Positions are keyed by {@link Symmetry#canonicalHash(GameState)}, so the
+ * statistics of all symmetric positions are pooled, and a move is stored as
+ * {@link Symmetry#canonicalMove(GameState, int)}. The moves of one position are
+ * adjacent in the file, so a lookup is one binary search for the first of them
+ * followed by a short scan.
+ */
+public final class OpeningBook implements AutoCloseable {
+
+    static final int MAGIC = 0x48584231; // "HXB1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+
+    /** Bytes of one move across the four arrays. */
+    static final int ENTRY_BYTES = Long.BYTES + 3 * Integer.BYTES;
+
+    /**
+     * The statistics of one move.
+     *
+     * @param cell  the cell to play, in the frame of the position looked up
+     * @param games the number of recorded games in which it was played
+     * @param wins  the number of those won by the side that played it
+     */
+    public record Move(int cell, int games, int wins) {
+
+        /**
+         * @return the share of games won, pulled towards one half when there
+         *         are few of them
+         */
+        public double score() {
+            return (wins + 1.0) / (games + 2.0);
+        }
+    }
+
+    private final ByteBuffer hashes;
+    private final ByteBuffer moves;
+    private final ByteBuffer games;
+    private final ByteBuffer wins;
+    private final int cells;
+    private final int fingerprint;
+    private final int size;
+
+    /** The last board accepted by {@link #covers(Board)}, so later lookups skip the fingerprint. */
+    private volatile Board covered;
+
+    private OpeningBook(MappedByteBuffer buffer, int cells, int fingerprint, int size) {
+        this.cells = cells;
+        this.fingerprint = fingerprint;
+        this.size = size;
+        int offset = HEADER_BYTES;
+        this.hashes = buffer.slice(offset, size * Long.BYTES);
+        offset += size * Long.BYTES;
+        this.moves = buffer.slice(offset, size * Integer.BYTES);
+        offset += size * Integer.BYTES;
+        this.games = buffer.slice(offset, size * Integer.BYTES);
+        offset += size * Integer.BYTES;
+        this.wins = buffer.slice(offset, size * Integer.BYTES);
+    }
+
+    /**
+     * Maps a book file.
+     *
+     * @param file the file written by {@link OpeningBookBuilder#write(Path, int)}
+     * @return the book
+     * @throws IOException if the file cannot be read or is not an opening book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC)
+                throw new IOException(file + " is not an opening book");
+            if (buffer.getInt(4) != VERSION)
+                throw new IOException(file + " has unsupported version " + buffer.getInt(4));
+            long size = buffer.getLong(16);
+            if (size < 0 || HEADER_BYTES + size * ENTRY_BYTES != buffer.capacity())
+                throw new IOException(file + " is truncated");
+            return new OpeningBook(buffer, buffer.getInt(8), buffer.getInt(12), (int) size);
+        }
+    }
+
+    /**
+     * @param board a board
+     * @return whether this book was built from games on the given board
+     */
+    public boolean covers(Board board) {
+        if (board == covered) {
+            return true;
+        }
+        if (board.size() != cells || Tablebase.fingerprint(board) != fingerprint) {
+            return false;
+        }
+        covered = board;
+        return true;
+    }
+
+    /**
+     * @return the number of moves in the book
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks up the recorded moves of a position.
+     *
+     * @param state a position on the board the book was built for
+     * @return its moves, in no particular order, or an empty list if the book
+     *         does not hold the position
+     */
+    public List<Move> moves(GameState state) {
+        List<Move> found = new ArrayList<>();
+        if (!covers(state.board())) {
+            return found;
+        }
+        Symmetry symmetry = state.board().symmetry();
+        int frame = symmetry.canonical(state);
+        long hash = symmetry.hash(state, frame);
+        for (int i = first(hash); i < size && hashes.getLong(i * Long.BYTES) == hash; i++) {
+            int cell = symmetry.preimage(frame, moves.getInt(i * Integer.BYTES));
+            if (state.isLegal(cell)) {
+                found.add(new Move(cell, games.getInt(i * Integer.BYTES), wins.getInt(i * Integer.BYTES)));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the best known move of a position: the one with the highest
+     * {@link Move#score()}, and the most games among equals.
+     *
+     * @param state a position on the board the book was built for
+     * @return the move, or null if the book does not hold the position
+     */
+    public Move bestMove(GameState state) {
+        Move best = null;
+        for (Move move : moves(state)) {
+            if (best == null || move.score() > best.score()
+                    || move.score() == best.score() && move.games() > best.games()) {
+                best = move;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * @return the index of the first entry whose hash is not below the given
+     *         one, comparing as the builder sorted them
+     */
+    private int first(long hash) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (hashes.getLong(mid * Long.BYTES) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,233 @@
+package com.charliezhang.hexoust;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Collects the opening moves of finished games, typically self-play games
+ * recorded by a {@link Tournament}, and writes them as an {@link OpeningBook}.
+ * <p>
+ * Each of the first plies of a game counts one game for the move played in
+ * that position, and one win if the side that played it went on to win.
+ * Symmetric positions and equivalent moves are counted together, so a few
+ * hundred games already give the first moves of a hexagon useful totals.
+ * Unfinished games, games from other boards (even of the same size) and
+ * games with an illegal move are skipped.
+ */
+public final class OpeningBookBuilder {
+
+    /** Plies of each game counted when none is given. */
+    public static final int DEFAULT_PLIES = 12;
+
+    /** A move in the canonical frame of the position it was played in. */
+    private record Key(long hash, int move) {
+    }
+
+    private final Board board;
+    private final int plies;
+    private final Map<Key, int[]> counts = new HashMap<>();
+    private long games;
+
+    /**
+     * @param board the board the games were played on
+     * @param plies the number of plies counted from the start of each game
+     */
+    public OpeningBookBuilder(Board board, int plies) {
+        if (plies < 1)
+            throw new IllegalArgumentException("plies must be positive");
+        this.board = board;
+        this.plies = plies;
+    }
+
+    /**
+     * Counts the opening of a finished game.
+     *
+     * @param game a game on this builder's board
+     * @return whether the game was counted, false if it is unfinished or from another board
+     */
+    public boolean add(GameState game) {
+        Board other = game.board();
+        if (other != board && (other.size() != board.size() || other.fingerprint() != board.fingerprint())) {
+            return false;
+        }
+        int[] cells = new int[Math.min(plies, game.moveCount())];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = game.moveAt(i);
+        }
+        return add(cells, cells.length, game.winner());
+    }
+
+    /**
+     * Counts the opening of every finished game in an archive that was played
+     * on this builder's board.
+     *
+     * @param archive the archive
+     * @return the number of games counted
+     */
+    public long addAll(GameArchive archive) {
+        long added = 0;
+        int[] moves = new int[1024];
+        GameArchive.Cursor cursor = archive.cursor();
+        while (cursor.next()) {
+            if (!cursor.playedOn(board)) {
+                continue;
+            }
+            if (cursor.moveCount() > moves.length) {
+                moves = new int[Integer.highestOneBit(cursor.moveCount()) * 2];
+            }
+            int count = Math.min(plies, cursor.moves(moves));
+            for (int i = 0; i < count; i++) {
+                moves[i] = GameArchive.cell(moves[i]);
+            }
+            if (add(moves, count, cursor.result())) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private boolean add(int[] cells, int count, int winner) {
+        if (winner == GameState.NONE) {
+            return false;
+        }
+        // Every move is checked before any is counted, so a corrupt game adds nothing
+        Symmetry symmetry = board.symmetry();
+        GameState state = new GameState(board);
+        Key[] keys = new Key[count];
+        boolean[] won = new boolean[count];
+        int n = 0;
+        for (; n < count && !state.isTerminal(); n++) {
+            if (!state.isLegal(cells[n])) {
+                return false;
+            }
+            keys[n] = new Key(symmetry.canonicalHash(state), symmetry.canonicalMove(state, cells[n]));
+            won[n] = state.sideToMove() == winner;
+            state.play(cells[n]);
+        }
+        for (int i = 0; i < n; i++) {
+            int[] c = counts.computeIfAbsent(keys[i], key -> new int[2]);
+            c[0]++;
+            if (won[i]) {
+                c[1]++;
+            }
+        }
+        games++;
+        return true;
+    }
+
+    /**
+     * @return the number of games counted so far
+     */
+    public long games() {
+        return games;
+    }
+
+    /**
+     * @return the number of distinct moves counted so far
+     */
+    public int size() {
+        return counts.size();
+    }
+
+    /**
+     * Writes the counted moves as an opening book file.
+     *
+     * @param file     the file to create or replace
+     * @param minGames moves played in fewer games are left out
+     * @return the number of moves written
+     */
+    public int write(Path file, int minGames) throws IOException {
+        List<Map.Entry<Key, int[]>> entries = new ArrayList<>();
+        for (Map.Entry<Key, int[]> entry : counts.entrySet()) {
+            if (entry.getValue()[0] >= minGames) {
+                entries.add(entry);
+            }
+        }
+        if (OpeningBook.HEADER_BYTES + (long) entries.size() * OpeningBook.ENTRY_BYTES > Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many moves to map: " + entries.size());
+        entries.sort((a, b) -> a.getKey().hash() != b.getKey().hash()
+                ? Long.compare(a.getKey().hash(), b.getKey().hash())
+                : Integer.compare(a.getKey().move(), b.getKey().move()));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(board.size());
+            out.writeInt(Tablebase.fingerprint(board));
+            out.writeLong(entries.size());
+            for (Map.Entry<Key, int[]> entry : entries) {
+                out.writeLong(entry.getKey().hash());
+            }
+            for (Map.Entry<Key, int[]> entry : entries) {
+                out.writeInt(entry.getKey().move());
+            }
+            for (Map.Entry<Key, int[]> entry : entries) {
+                out.writeInt(entry.getValue()[0]);
+            }
+            for (Map.Entry<Key, int[]> entry : entries) {
+                out.writeInt(entry.getValue()[1]);
+            }
+        }
+        return entries.size();
+    }
+
+    /**
+     * Builds an opening book from a directory of recorded games.
+     *
+     * @param args {@code [--radius=<radius>] [--shape=<shape>] [--plies=<n>] [--min-games=<n>] <archive> <file>}
+     */
+    public static void main(String[] args) {
+        int radius = 6;
+        Board.Shape shape = Board.Shape.HEXAGON;
+        int plies = DEFAULT_PLIES;
+        int minGames = 2;
+        List<String> paths = new ArrayList<>();
+        try {
+            for (String arg : args) {
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith("--radius=")) {
+                    radius = Integer.parseInt(value);
+                } else if (arg.startsWith("--shape=")) {
+                    try {
+                        shape = Board.Shape.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown shape: " + value);
+                    }
+                } else if (arg.startsWith("--plies=")) {
+                    plies = Integer.parseInt(value);
+                } else if (arg.startsWith("--min-games=")) {
+                    minGames = Integer.parseInt(value);
+                } else if (arg.startsWith("--") || paths.size() == 2) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else {
+                    paths.add(arg);
+                }
+            }
+            if (paths.size() < 2)
+                throw new IllegalArgumentException("An archive and a book file are needed");
+            OpeningBookBuilder builder = new OpeningBookBuilder(Board.of(shape, radius), plies);
+            long start = System.nanoTime();
+            try (GameArchive archive = GameArchive.open(Path.of(paths.get(0)))) {
+                builder.addAll(archive);
+                int written = builder.write(Path.of(paths.get(1)), minGames);
+                System.out.printf(Locale.ROOT, "%d of %d games counted over %d plies: %d moves, %d played in at least %d games%n",
+                        builder.games(), archive.size(), plies, builder.size(), written, minGames);
+                System.out.printf(Locale.ROOT, "built in %.0f ms; written to %s%n", (System.nanoTime() - start) / 1e6, paths.get(1));
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println(e.getMessage());
+            System.err.println("java HexGrid book [--radius=<radius>] [--shape=<shape>] [--plies=<n>] [--min-games=<n>] <archive> <file>");
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Could not build the book: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.charliezhang.hexoust;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * The confetti of the win animation, stored as parallel primitive arrays rather
+ * than one object per particle. Particles are spawned near the top of the
+ * panel with a random sideways and vertical speed, fall under gravity, and are
+ * dropped as soon as they leave the panel, so a step and a draw only touch live
+ * particles.
+ * <p>
+ * Drawing a shape per particle through Graphics costs microseconds each, which
+ * caps a frame at a few thousand particles. Instead, particles are stamped as
+ * pixel discs straight into an overlay image, one colour at a time, and the
+ * overlay is drawn with a single {@code drawImage}.
+ */
+public final class ParticleSystem {
+
+    /** Colours a particle can take, indexed by its colour index. */
+    private static final Color[] PALETTE = {Color.RED, Color.BLUE, Color.YELLOW, Color.GREEN, Color.PINK, Color.ORANGE};
+
+    /** Diameter of a particle in pixels. */
+    private static final int SIZE = 10;
+
+    /** Downward speed added every step. */
+    private static final float GRAVITY = 1;
+
+    /** Pixel columns {@code [SPAN_START[row], SPAN_END[row])} covered by each row of a particle. */
+    private static final int[] SPAN_START = new int[SIZE];
+    private static final int[] SPAN_END = new int[SIZE];
+
+    static {
+        double radius = SIZE / 2.0;
+        for (int row = 0; row < SIZE; row++) {
+            double dy = row + 0.5 - radius;
+            double half = Math.sqrt(radius * radius - dy * dy);
+            SPAN_START[row] = (int) Math.round(radius - half);
+            SPAN_END[row] = (int) Math.round(radius + half);
+        }
+    }
+
+    private BufferedImage overlay;
+    private int[] pixels;
+
+    /** Rows of the overlay written by the last draw, to be cleared by the next. */
+    private int dirtyTop, dirtyBottom;
+
+    private float[] x, y, vx, vy;
+    private byte[] color;
+    private int count;
+
+    /** State of the SplitMix64 generator used for spawning. */
+    private long seed;
+
+    /**
+     * @param seed the seed of the spawn positions, speeds and colours
+     */
+    public ParticleSystem(long seed) {
+        this.seed = seed;
+        allocate(64);
+    }
+
+    /**
+     * @return the number of live particles
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return true if no particle is live
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Removes every particle.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Adds particles at random positions across the top of the panel, each
+     * with a speed between -3 and 2 pixels per step on both axes.
+     *
+     * @param particles the number of particles to add
+     * @param width     the width of the panel
+     * @param height    the height of the band the particles start in
+     */
+    public void spawn(int particles, int width, int height) {
+        if (count + particles > x.length) {
+            grow(Math.max(count + particles, 2 * x.length));
+        }
+        for (int i = 0; i < particles; i++) {
+            int p = count++;
+            x[p] = nextInt(Math.max(1, width));
+            y[p] = nextInt(Math.max(1, height));
+            vx[p] = nextInt(6) - 3;
+            vy[p] = nextInt(6) - 3;
+            color[p] = (byte) nextInt(PALETTE.length);
+        }
+    }
+
+    /**
+     * Moves every particle one step and removes those that have left the
+     * panel. A particle that has fallen below the bottom edge never comes
+     * back, and one off either side is moving away, so both are culled.
+     *
+     * @param width  the width of the panel
+     * @param height the height of the panel
+     */
+    public void step(int width, int height) {
+        float[] x = this.x, y = this.y, vx = this.vx, vy = this.vy;
+        int p = 0;
+        while (p < count) {
+            x[p] += vx[p];
+            y[p] += vy[p];
+            vy[p] += GRAVITY;
+            if (y[p] > height || x[p] < -SIZE || x[p] > width) {
+                // Swap the last particle into this slot and look at it next
+                int last = --count;
+                x[p] = x[last];
+                y[p] = y[last];
+                vx[p] = vx[last];
+                vy[p] = vy[last];
+                color[p] = color[last];
+            } else {
+                p++;
+            }
+        }
+    }
+
+    /**
+     * Draws every live particle, one colour at a time, so later palette
+     * colours are drawn over earlier ones.
+     *
+     * @param g2     the graphics to draw with
+     * @param width  the width of the panel
+     * @param height the height of the panel
+     */
+    public void draw(Graphics2D g2, int width, int height) {
+        if (count == 0 || width <= 0 || height <= 0) {
+            return;
+        }
+        if (overlay == null || overlay.getWidth() != width || overlay.getHeight() != height) {
+            overlay = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            pixels = ((DataBufferInt) overlay.getRaster().getDataBuffer()).getData();
+        } else if (dirtyTop < dirtyBottom) {
+            Arrays.fill(pixels, dirtyTop * width, dirtyBottom * width, 0);
+        }
+
+        int top = height, bottom = 0;
+        for (int c = 0; c < PALETTE.length; c++) {
+            int argb = PALETTE[c].getRGB();
+            for (int p = 0; p < count; p++) {
+                if (color[p] != c) {
+                    continue;
+                }
+                int px = (int) x[p];
+                int py = (int) y[p];
+                int rowFrom = Math.max(0, -py);
+                int rowTo = Math.min(SIZE, height - py);
+                for (int row = rowFrom; row < rowTo; row++) {
+                    int from = Math.max(0, px + SPAN_START[row]);
+                    int to = Math.min(width, px + SPAN_END[row]);
+                    int base = (py + row) * width;
+                    for (int col = from; col < to; col++) {
+                        pixels[base + col] = argb;
+                    }
+                }
+                top = Math.min(top, py + rowFrom);
+                bottom = Math.max(bottom, py + rowTo);
+            }
+        }
+        dirtyTop = top;
+        dirtyBottom = bottom;
+        g2.drawImage(overlay, 0, 0, null);
+    }
+
+    private int nextInt(int bound) {
+        long z = Zobrist.mix(seed += 0x9E3779B97F4A7C15L);
+        return (int) (((z >>> 33) * bound) >>> 31);
+    }
+
+    private void allocate(int capacity) {
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        color = new byte[capacity];
+    }
+
+    private void grow(int capacity) {
+        float[] oldX = x, oldY = y, oldVx = vx, oldVy = vy;
+        byte[] oldColor = color;
+        allocate(capacity);
+        System.arraycopy(oldX, 0, x, 0, count);
+        System.arraycopy(oldY, 0, y, 0, count);
+        System.arraycopy(oldVx, 0, vx, 0, count);
+        System.arraycopy(oldVy, 0, vy, 0, count);
+        System.arraycopy(oldColor, 0, color, 0, count);
+    }
+}
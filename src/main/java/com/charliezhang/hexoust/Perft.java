@@ -0,0 +1,75 @@
+package com.charliezhang.hexoust;
+
+/**
+ * Counts the leaf nodes of the HexOust game tree to a fixed depth, to check the
+ * move generator against known counts and to track its throughput across releases.
+ * A capture keeps the turn, so one ply is one placement rather than one turn.
+ */
+public final class Perft {
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the positions reachable from the given one in exactly {@code depth}
+     * placements. The position is left unchanged.
+     *
+     * @param state the starting position
+     * @param depth the number of placements
+     * @return the number of leaf positions
+     */
+    public static long perft(GameState state, int depth) {
+        return perft(state, depth, new int[depth][state.board().size()]);
+    }
+
+    private static long perft(GameState state, int depth, int[][] buffers) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] moves = buffers[depth - 1];
+        int count = state.legalMoves(moves);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            state.play(moves[i]);
+            nodes += perft(state, depth - 1, buffers);
+            state.undo();
+        }
+        return nodes;
+    }
+
+    /**
+     * Runs perft from the empty board for every depth up to the given one and
+     * prints the node counts and throughput.
+     *
+     * @param args the maximum depth, and optionally the board radius (default 6)
+     */
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("java HexGrid perft <depth> [radius]");
+            System.exit(1);
+        }
+
+        int maxDepth = 0, radius = 6;
+        try {
+            maxDepth = Integer.parseInt(args[0]);
+            if (args.length > 1) {
+                radius = Integer.parseInt(args[1]);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Problems parsing integer arguments.");
+            System.exit(1);
+        }
+
+        GameState state = new GameState(Board.hexagon(radius));
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            long start = System.nanoTime();
+            long nodes = perft(state, depth);
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            System.out.printf("perft(%d) = %d  %.1f ms  %.0f nodes/s%n",
+                    depth, nodes, elapsed / 1e6, nodes * 1e9 / elapsed);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.charliezhang.hexoust;
+
+/**
+ * A computer player that chooses moves for whichever side is to move. Players
+ * only read the position they are given, so they can run on any thread.
+ */
+public interface Player extends AutoCloseable {
+
+    /**
+     * Chooses a legal move for the side to move. The position is not modified.
+     *
+     * @param state a position that is not terminal
+     * @return the cell id to play
+     */
+    int chooseMove(GameState state);
+
+    /**
+     * @return a short name used in logs and results
+     */
+    default String name() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * @return a one-line summary of the last search, or null if the player does not search
+     */
+    default String lastSearchSummary() {
+        return null;
+    }
+
+    /**
+     * Releases any threads held by the player.
+     */
+    @Override
+    default void close() {
+    }
+}
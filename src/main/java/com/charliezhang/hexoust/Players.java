@@ -0,0 +1,93 @@
+package com.charliezhang.hexoust;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Creates computer players from short command-line specifications of the form
+ * {@code kind[:millis]}, for example {@code mcts:2000}, or
+ * {@code tablebase:<file>} for perfect play from a solved board. Any computer
+ * player can be given an opening book with {@link #withBook(Player, String)}.
+ */
+public final class Players {
+
+    /** Thinking time per move when a specification does not give one. */
+    public static final long DEFAULT_MILLIS = 1000;
+
+    private Players() {
+    }
+
+    /**
+     * Creates a player from a specification.
+     *
+     * @param spec the specification: {@code human}, {@code random}, {@code mcts[:millis]},
+     *             {@code alphabeta[:millis]} or {@code tablebase:<file>}
+     * @param seed the seed for any randomness in the player
+     * @return the player, or null for {@code human}
+     * @throws IllegalArgumentException if the specification is not recognised
+     */
+    public static Player create(String spec, long seed) {
+        return create(spec, seed, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a player from a specification, limiting how many threads it
+     * searches with.
+     *
+     * @param spec    the specification, as for {@link #create(String, long)}
+     * @param seed    the seed for any randomness in the player
+     * @param threads the most search threads the player may use, at least 1
+     * @return the player, or null for {@code human}
+     * @throws IllegalArgumentException if the specification is not recognised
+     */
+    public static Player create(String spec, long seed, int threads) {
+        if (spec.toLowerCase().startsWith("tablebase:")) {
+            String file = spec.substring(spec.indexOf(':') + 1);
+            try {
+                return new TablebasePlayer(Tablebase.open(Path.of(file)), new RandomPlayer(seed));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot open tablebase '" + file + "': " + e.getMessage());
+            }
+        }
+        String[] parts = spec.toLowerCase().split(":", 2);
+        long millis = DEFAULT_MILLIS;
+        if (parts.length > 1) {
+            try {
+                millis = Long.parseLong(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad thinking time in player '" + spec + "'");
+            }
+        }
+        switch (parts[0]) {
+            case "human":
+                return null;
+            case "random":
+                return new RandomPlayer(seed);
+            case "mcts":
+                return new MctsPlayer(millis, 0, Math.sqrt(2), threads, 3, seed);
+            case "alphabeta":
+                return new AlphaBetaPlayer(millis);
+            default:
+                throw new IllegalArgumentException("Unknown player '" + spec + "'");
+        }
+    }
+
+    /**
+     * Gives a computer player an opening book, which it plays from until the
+     * game leaves the book.
+     *
+     * @param player the player, or null for a human
+     * @param file   the book file written by {@link OpeningBookBuilder}
+     * @return the player with the book
+     * @throws IllegalArgumentException if the player is human or the book cannot be opened
+     */
+    public static Player withBook(Player player, String file) {
+        if (player == null)
+            throw new IllegalArgumentException("An opening book needs a computer player");
+        try {
+            return new BookPlayer(OpeningBook.open(Path.of(file)), player);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot open opening book '" + file + "': " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.charliezhang.hexoust;
+
+import java.util.Objects;
+
+/**
+     * Constructs a Point with the given x and y coordinates.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     */
+class Point {
+    public Point(double x, double y) {
+        /**
+     * The x/y-coordinate of the point.
+     */
+        this.x = x;
+        this.y = y;
+    }
+    public final double x;
+    public final double y;
+
+    /**
+     * Compares this Point to another object for equality. Two Points are equal if their
+     * x and y coordinates are identical.
+     *
+     * @param obj the object to compare
+     * @return true if the objects are equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true; // same reference
+        if (obj == null || getClass() != obj.getClass()) return false; // not same type
+        Point point = (Point) obj;
+        return Double.compare(point.x, x) == 0 &&
+                Double.compare(point.y, y) == 0;
+    }
+
+    /**
+     * Computes the hash code for the Point based on its x and y coordinates.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(x, y);
+    }
+}
@@ -0,0 +1,29 @@
+package com.charliezhang.hexoust;
+
+import java.util.SplittableRandom;
+
+/**
+ * A player that picks uniformly among the legal moves, as a baseline opponent.
+ */
+public final class RandomPlayer implements Player {
+
+    private final SplittableRandom random;
+
+    /**
+     * @param seed the seed of the move choices
+     */
+    public RandomPlayer(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public int chooseMove(GameState state) {
+        int[] moves = state.legalMoves();
+        return moves[random.nextInt(moves.length)];
+    }
+
+    @Override
+    public String name() {
+        return "random";
+    }
+}
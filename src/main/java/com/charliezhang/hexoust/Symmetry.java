@@ -0,0 +1,190 @@
+package com.charliezhang.hexoust;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The rotations and reflections of the hex grid about the origin that map a
+ * board onto itself, as permutations of its cell ids. A hexagon has all 12 (six
+ * rotations, each with and without a reflection), a triangle 6 and a rhombus 4;
+ * symmetry 0 is always the identity.
+ * <p>
+ * Symmetric positions have the same value and mirrored best moves, so caches can
+ * store one entry for all of them. The canonical form of a position is its image
+ * with the smallest Zobrist hash; symmetric positions share the same set of
+ * images and therefore the same canonical hash. The stone keys of every image
+ * are permuted once at construction, so hashing an image is the same XOR over
+ * the stones as {@link Zobrist#hash(GameState)}, with no coordinate arithmetic.
+ * <p>
+ * Instances are immutable and shared through {@link Board#symmetry()}.
+ */
+public final class Symmetry {
+
+    /** Cell id of each cell's image, indexed by symmetry then cell id. */
+    private final int[][] images;
+
+    /** The inverse of {@link #images}. */
+    private final int[][] preimages;
+
+    /** Zobrist keys that hash a position as its image, indexed by symmetry then {@code cell * 2 + player}. */
+    private final long[][] keys;
+
+    /**
+     * Finds the symmetries of a board. A board built from pixel geometry has no
+     * coordinates and only the identity.
+     *
+     * @param board the board
+     */
+    Symmetry(Board board) {
+        int cells = board.size();
+        List<int[]> found = new ArrayList<>();
+        int[] identity = new int[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            identity[cell] = cell;
+        }
+        found.add(identity);
+        if (board.hasCoordinates()) {
+            for (int t = 1; t < 12; t++) {
+                int[] image = new int[cells];
+                for (int cell = 0; cell < cells && image != null; cell++) {
+                    HexCube h = board.cube(cell);
+                    // Reflect across the q axis by swapping r and s, then turn by 60 degrees t / 2 times
+                    int q = h.q, r = t % 2 == 0 ? h.r : h.s;
+                    for (int turn = 0; turn < t / 2; turn++) {
+                        int s = -q - r;
+                        q = -r;
+                        r = -s;
+                    }
+                    image[cell] = board.indexOf(q, r);
+                    if (image[cell] < 0) {
+                        image = null;
+                    }
+                }
+                if (image != null) {
+                    found.add(image);
+                }
+            }
+        }
+        this.images = found.toArray(new int[0][]);
+        this.preimages = new int[images.length][cells];
+        this.keys = new long[images.length][2 * cells];
+        long[] zobrist = board.zobristKeys();
+        for (int t = 0; t < images.length; t++) {
+            for (int cell = 0; cell < cells; cell++) {
+                preimages[t][images[t][cell]] = cell;
+                keys[t][cell * 2] = zobrist[images[t][cell] * 2];
+                keys[t][cell * 2 + 1] = zobrist[images[t][cell] * 2 + 1];
+            }
+        }
+    }
+
+    /**
+     * @return the number of symmetries, including the identity
+     */
+    public int size() {
+        return images.length;
+    }
+
+    /**
+     * @param symmetry the symmetry
+     * @param cell     a cell id
+     * @return the cell the symmetry maps it to
+     */
+    public int image(int symmetry, int cell) {
+        return images[symmetry][cell];
+    }
+
+    /**
+     * @param symmetry the symmetry
+     * @param cell     a cell id
+     * @return the cell the symmetry maps onto it
+     */
+    public int preimage(int symmetry, int cell) {
+        return preimages[symmetry][cell];
+    }
+
+    /**
+     * @param state    a position on this board
+     * @param symmetry the symmetry
+     * @return the Zobrist hash of the position's image under the symmetry
+     */
+    public long hash(GameState state, int symmetry) {
+        long[] k = keys[symmetry];
+        long hash = state.sideToMove() == GameState.BLUE ? Zobrist.SIDE : 0L;
+        for (int player = GameState.RED; player <= GameState.BLUE; player++) {
+            for (int cell = state.nextStone(player, 0); cell >= 0; cell = state.nextStone(player, cell + 1)) {
+                hash ^= k[cell * 2 + player];
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Finds the symmetry that maps a position to its canonical form. A move
+     * {@code m} in the position is the move {@code image(s, m)} in the canonical
+     * form, and a move {@code c} stored for the canonical form is played as
+     * {@code preimage(s, c)}.
+     *
+     * @param state a position on this board
+     * @return the symmetry whose image has the smallest hash
+     */
+    public int canonical(GameState state) {
+        int best = 0;
+        long bestHash = state.hash();
+        for (int t = 1; t < images.length; t++) {
+            long hash = hash(state, t);
+            if (Long.compareUnsigned(hash, bestHash) < 0) {
+                best = t;
+                bestHash = hash;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param state a position on this board
+     * @return the hash of its canonical form, the same for every symmetric position
+     */
+    public long canonicalHash(GameState state) {
+        return hash(state, canonical(state));
+    }
+
+    /**
+     * Maps a move into the canonical form of its position. When the canonical
+     * form is itself symmetric, as the empty board is, several symmetries map
+     * the position to it and equivalent moves have several images; the smallest
+     * is returned, so equivalent moves always share one cell. Playing
+     * {@code preimage(canonical(state), c)} for the result {@code c} gives the
+     * move or one equivalent to it.
+     *
+     * @param state a position on this board
+     * @param move  a cell id
+     * @return the cell of the move in the canonical form
+     */
+    public int canonicalMove(GameState state, int move) {
+        long bestHash = canonicalHash(state);
+        int best = Integer.MAX_VALUE;
+        for (int t = 0; t < images.length; t++) {
+            if (hash(state, t) == bestHash) {
+                best = Math.min(best, images[t][move]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Maps a set of cells on a board of at most 64 cells.
+     *
+     * @param symmetry the symmetry
+     * @param cells    one bit per cell id
+     * @return one bit per image cell id
+     */
+    long image(int symmetry, long cells) {
+        int[] image = images[symmetry];
+        long mapped = 0;
+        for (; cells != 0; cells &= cells - 1) {
+            mapped |= 1L << image[Long.numberOfTrailingZeros(cells)];
+        }
+        return mapped;
+    }
+}
@@ -0,0 +1,228 @@
+package com.charliezhang.hexoust;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only, memory-mapped table of the exact value of every position that
+ * can be reached on one small board, written by {@link EndgameSolver}.
+ * <p>
+ * A tablebase file is a 24 byte header followed by two arrays of one entry per
+ * position:
+ * <pre>
+ *   int     magic "HXT1"
+ *   int     version
+ *   int     number of cells on the board
+ *   int     fingerprint of the board's adjacency
+ *   long    number of positions
+ *   long[]  position keys, ascending
+ *   int[]   per position: outcome &lt;&lt; 30 | distance &lt;&lt; 8 | best move
+ * </pre>
+ * A key packs Red's stones, Blue's stones and the side to move into one long
+ * (see {@link #key(GameState)}), so boards of up to {@value #MAX_CELLS} cells
+ * are supported. Symmetric positions are stored once, under the smallest key
+ * among their images by the board's {@link Symmetry}, with the best move in
+ * that frame; on a hexagon this makes the table up to 12 times smaller. A probe
+ * maps the position to its canonical key, binary searches the mapped keys and
+ * maps the best move back.
+ */
+public final class Tablebase implements AutoCloseable {
+
+    static final int MAGIC = 0x48585431; // "HXT1"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 24;
+
+    /** The largest board whose positions fit in a key. */
+    public static final int MAX_CELLS = 31;
+
+    /** The game can be played forever from the position: captures let positions repeat. */
+    public static final int DRAW = 0;
+
+    /** The side to move wins with perfect play. */
+    public static final int WIN = 1;
+
+    /** The side to move loses against perfect play. */
+    public static final int LOSS = 2;
+
+    /** Best move of a position where the game is over. */
+    static final int NO_MOVE = 0xFF;
+
+    /** The largest distance an entry can hold. */
+    static final int MAX_DISTANCE = (1 << 22) - 1;
+
+    /**
+     * The value of one position for the side to move.
+     *
+     * @param outcome  {@link #WIN}, {@link #LOSS} or {@link #DRAW}
+     * @param distance plies until the game ends with perfect play, 0 if it is
+     *                 over, meaningless for a draw
+     * @param bestMove the cell that wins fastest, loses slowest or keeps the
+     *                 draw, or -1 if the game is over
+     */
+    public record Entry(int outcome, int distance, int bestMove) {
+    }
+
+    private final ByteBuffer keys;
+    private final ByteBuffer entries;
+    private final int cells;
+    private final int fingerprint;
+    private final int size;
+
+    /** The last board accepted by {@link #covers(Board)}, so later probes skip the fingerprint. */
+    private volatile Board covered;
+
+    private Tablebase(MappedByteBuffer buffer, int cells, int fingerprint, int size) {
+        this.cells = cells;
+        this.fingerprint = fingerprint;
+        this.size = size;
+        this.keys = buffer.slice(HEADER_BYTES, size * Long.BYTES);
+        this.entries = buffer.slice(HEADER_BYTES + size * Long.BYTES, size * Integer.BYTES);
+    }
+
+    /**
+     * Maps a tablebase file.
+     *
+     * @param file the file written by {@link EndgameSolver#write(Path)}
+     * @return the tablebase
+     * @throws IOException if the file cannot be read or is not a tablebase
+     */
+    public static Tablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC)
+                throw new IOException(file + " is not a tablebase");
+            if (buffer.getInt(4) != VERSION)
+                throw new IOException(file + " has unsupported version " + buffer.getInt(4));
+            long size = buffer.getLong(16);
+            if (size < 0 || HEADER_BYTES + size * (Long.BYTES + Integer.BYTES) != buffer.capacity())
+                throw new IOException(file + " is truncated");
+            return new Tablebase(buffer, buffer.getInt(8), buffer.getInt(12), (int) size);
+        }
+    }
+
+    /**
+     * @param board a board
+     * @return whether this table was solved on the given board
+     */
+    public boolean covers(Board board) {
+        if (board == covered) {
+            return true;
+        }
+        if (board.size() != cells || fingerprint(board) != fingerprint) {
+            return false;
+        }
+        covered = board;
+        return true;
+    }
+
+    /**
+     * @return the number of positions in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param state a position on the board the table was solved for
+     * @return its value, or null if the table holds no such position
+     */
+    public Entry probe(GameState state) {
+        if (!covers(state.board())) {
+            return null;
+        }
+        Symmetry symmetry = state.board().symmetry();
+        long key = key(state);
+        int frame = canonicalFrame(symmetry, cells, key);
+        key = image(symmetry, frame, cells, key);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long found = keys.getLong(mid * Long.BYTES);
+            if (found < key) {
+                low = mid + 1;
+            } else if (found > key) {
+                high = mid - 1;
+            } else {
+                int entry = entries.getInt(mid * Integer.BYTES);
+                int move = entry & NO_MOVE;
+                return new Entry(entry >>> 30, (entry >>> 8) & MAX_DISTANCE,
+                        move == NO_MOVE ? -1 : symmetry.preimage(frame, move));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * @return the key of a position: Red's stones in the low bits, then Blue's,
+     *         then the side to move
+     */
+    static long key(GameState state) {
+        int cells = state.board().size();
+        return state.stoneBits(GameState.RED)[0]
+                | state.stoneBits(GameState.BLUE)[0] << cells
+                | (long) state.sideToMove() << 2 * cells;
+    }
+
+    /**
+     * @return the key of the image of a position under a symmetry
+     */
+    static long image(Symmetry symmetry, int frame, int cells, long key) {
+        long mask = (1L << cells) - 1;
+        return symmetry.image(frame, key & mask)
+                | symmetry.image(frame, (key >>> cells) & mask) << cells
+                | key >>> 2 * cells << 2 * cells;
+    }
+
+    /**
+     * @return the symmetry that maps the position with the given key to the
+     *         image with the smallest key
+     */
+    static int canonicalFrame(Symmetry symmetry, int cells, long key) {
+        int best = 0;
+        long bestKey = key;
+        for (int frame = 1; frame < symmetry.size(); frame++) {
+            long image = image(symmetry, frame, cells, key);
+            if (image < bestKey) {
+                best = frame;
+                bestKey = image;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the key under which the position with the given key is stored
+     */
+    static long canonicalKey(Symmetry symmetry, int cells, long key) {
+        return image(symmetry, canonicalFrame(symmetry, cells, key), cells, key);
+    }
+
+    /**
+     * @return the position with the given key, ready to play from
+     */
+    static GameState position(Board board, long key) {
+        int cells = board.size();
+        long mask = (1L << cells) - 1;
+        return GameState.setUp(board, new long[] {key & mask}, new long[] {(key >>> cells) & mask},
+                (int) (key >>> 2 * cells));
+    }
+
+    static int fingerprint(Board board) {
+        return board.fingerprint();
+    }
+
+    static int entry(int outcome, int distance, int bestMove) {
+        return outcome << 30 | distance << 8 | bestMove;
+    }
+}
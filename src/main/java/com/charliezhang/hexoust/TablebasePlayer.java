@@ -0,0 +1,53 @@
+package com.charliezhang.hexoust;
+
+/**
+ * A player that plays perfectly from a {@link Tablebase}: it wins as fast as
+ * possible, loses as slowly as possible and keeps a drawn game going. Positions
+ * the table does not hold are handed to a fallback player.
+ */
+public final class TablebasePlayer implements Player {
+
+    private final Tablebase tablebase;
+    private final Player fallback;
+    private String lastSummary;
+
+    /**
+     * @param tablebase the table to probe
+     * @param fallback  the player for positions outside the table
+     */
+    public TablebasePlayer(Tablebase tablebase, Player fallback) {
+        this.tablebase = tablebase;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public int chooseMove(GameState state) {
+        Tablebase.Entry entry = tablebase.probe(state);
+        if (entry == null || entry.bestMove() < 0) {
+            lastSummary = "tablebase: position not in the table";
+            return fallback.chooseMove(state);
+        }
+        lastSummary = switch (entry.outcome()) {
+            case Tablebase.WIN -> "tablebase: win in " + entry.distance();
+            case Tablebase.LOSS -> "tablebase: loss in " + entry.distance();
+            default -> "tablebase: draw";
+        };
+        return entry.bestMove();
+    }
+
+    @Override
+    public String name() {
+        return "tablebase";
+    }
+
+    @Override
+    public String lastSearchSummary() {
+        return lastSummary;
+    }
+
+    @Override
+    public void close() {
+        fallback.close();
+        tablebase.close();
+    }
+}
@@ -0,0 +1,338 @@
+package com.charliezhang.hexoust;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many headless games between computer players and reports win rates,
+ * Elo ratings, average game length and throughput.
+ * <p>
+ * Every game is played with freshly created players, so games share nothing
+ * but the board topology. Engine players search on a single thread and, by
+ * default, no more games run at once than there are cores, so a timed player
+ * gets the same thinking time whichever machine or schedule it runs on. Each
+ * game's seed is derived from the tournament seed and the game's index alone,
+ * so a tournament of seeded players gives the same results however the games
+ * are scheduled. Every pairing is played an even number of times with colours
+ * alternating.
+ */
+public final class Tournament {
+
+    /** How the pairings are drawn up. */
+    public enum Mode {
+        /** Every player meets every other player. */
+        ROUND_ROBIN,
+        /** The first player meets each of the others. */
+        GAUNTLET
+    }
+
+    /** The outcome of one game. */
+    public static final class Game {
+        /** Index of the Red and Blue players in the entrant list. */
+        public final int red, blue;
+        /** RED, BLUE, or NONE for a draw. */
+        public final int winner;
+        /** Number of placements made. */
+        public final int plies;
+        /** Whether the game was stopped by a limit and decided on stone count. */
+        public final boolean adjudicated;
+
+        Game(int red, int blue, int winner, int plies, boolean adjudicated) {
+            this.red = red;
+            this.blue = blue;
+            this.winner = winner;
+            this.plies = plies;
+            this.adjudicated = adjudicated;
+        }
+    }
+
+    private final List<String> entrants;
+    private final Board board;
+    private final Mode mode;
+    private final int gamesPerPairing;
+    private final long gameMillis;
+    private final long seed;
+    private GameArchiveWriter recorder;
+    private int parallel = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @param entrants        player specifications as accepted by {@link Players#create}
+     * @param board           the board every game is played on
+     * @param mode            how the pairings are drawn up
+     * @param gamesPerPairing games per pairing, rounded up to an even number
+     * @param gameMillis      wall-clock limit per game, or 0 for none
+     * @param seed            the tournament seed
+     */
+    public Tournament(List<String> entrants, Board board, Mode mode, int gamesPerPairing, long gameMillis, long seed) {
+        if (entrants.size() < 2)
+            throw new IllegalArgumentException("A tournament needs at least two players");
+        for (String spec : entrants) {
+            Player player = Players.create(spec, 0, 1);
+            if (player == null)
+                throw new IllegalArgumentException("A tournament cannot include a human player");
+            player.close();
+        }
+        this.entrants = List.copyOf(entrants);
+        this.board = board;
+        this.mode = mode;
+        this.gamesPerPairing = Math.max(2, gamesPerPairing + (gamesPerPairing & 1));
+        this.gameMillis = gameMillis;
+        this.seed = seed;
+    }
+
+    /**
+     * Records every game of the tournament as it finishes.
+     *
+     * @param recorder the archive to append to, or null for none
+     */
+    public void recordTo(GameArchiveWriter recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Limits how many games are played at once. Each game keeps at most one
+     * thread busy, as only the side to move is thinking.
+     *
+     * @param games the most games in progress at any time, at least 1
+     */
+    public void parallel(int games) {
+        if (games < 1)
+            throw new IllegalArgumentException("parallel must be at least 1");
+        this.parallel = games;
+    }
+
+    /**
+     * Plays every game of the tournament and waits for them to finish.
+     *
+     * @return the games in schedule order
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public List<Game> play() throws InterruptedException {
+        List<int[]> schedule = new ArrayList<>();
+        for (int a = 0; a < entrants.size(); a++) {
+            for (int b = a + 1; b < entrants.size(); b++) {
+                if (mode == Mode.GAUNTLET && a != 0) {
+                    continue;
+                }
+                for (int g = 0; g < gamesPerPairing; g++) {
+                    schedule.add((g & 1) == 0 ? new int[]{a, b} : new int[]{b, a});
+                }
+            }
+        }
+
+        List<Future<Game>> futures = new ArrayList<>(schedule.size());
+        try (ExecutorService executor = Executors.newFixedThreadPool(parallel)) {
+            for (int i = 0; i < schedule.size(); i++) {
+                int red = schedule.get(i)[0];
+                int blue = schedule.get(i)[1];
+                long gameSeed = Zobrist.mix(seed + 0x9E3779B97F4A7C15L * (i + 1));
+                futures.add(executor.submit(() -> playGame(red, blue, gameSeed)));
+            }
+            List<Game> games = new ArrayList<>(futures.size());
+            for (Future<Game> future : futures) {
+                games.add(future.get());
+            }
+            return games;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A game failed", e.getCause());
+        }
+    }
+
+    private Game playGame(int red, int blue, long gameSeed) {
+        try (Player redPlayer = Players.create(entrants.get(red), gameSeed, 1);
+             Player bluePlayer = Players.create(entrants.get(blue), gameSeed ^ Zobrist.SIDE, 1)) {
+            GameState state = new GameState(board);
+            int winner = playGame(state, redPlayer, bluePlayer, gameMillis, 10 * board.size());
+            if (recorder != null) {
+                try {
+                    recorder.append(state);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return new Game(red, blue, winner, state.placements(), !state.isTerminal());
+        }
+    }
+
+    /**
+     * Plays a game to the end, or until a limit is reached, in which case the
+     * player with more stones wins.
+     *
+     * @param state      the starting position; it is played forward
+     * @param red        the Red player
+     * @param blue       the Blue player
+     * @param gameMillis wall-clock limit for the game, or 0 for none
+     * @param maxPlies   the most placements to play
+     * @return RED, BLUE, or NONE for a drawn adjudication
+     */
+    static int playGame(GameState state, Player red, Player blue, long gameMillis, int maxPlies) {
+        long deadline = gameMillis > 0 ? System.nanoTime() + gameMillis * 1_000_000L : Long.MAX_VALUE;
+        while (!state.isTerminal() && state.placements() < maxPlies && System.nanoTime() < deadline) {
+            Player mover = state.sideToMove() == GameState.RED ? red : blue;
+            state.play(mover.chooseMove(state.copy()));
+        }
+        if (state.isTerminal()) {
+            return state.winner();
+        }
+        int redStones = state.stoneCount(GameState.RED);
+        int blueStones = state.stoneCount(GameState.BLUE);
+        return redStones > blueStones ? GameState.RED : blueStones > redStones ? GameState.BLUE : GameState.NONE;
+    }
+
+    /**
+     * Fits Elo ratings to the results by gradient ascent on the logistic
+     * likelihood. Ratings are anchored so that their mean is zero.
+     *
+     * @param games   the results
+     * @param players the number of entrants
+     * @return the rating of every entrant
+     */
+    static double[] elo(List<Game> games, int players) {
+        double[] ratings = new double[players];
+        double[] gradient = new double[players];
+        int[] played = new int[players];
+        for (Game g : games) {
+            played[g.red]++;
+            played[g.blue]++;
+        }
+        for (int iteration = 0; iteration < 2000; iteration++) {
+            Arrays.fill(gradient, 0);
+            for (Game g : games) {
+                double expected = 1 / (1 + Math.pow(10, (ratings[g.blue] - ratings[g.red]) / 400));
+                double actual = g.winner == GameState.RED ? 1 : g.winner == GameState.BLUE ? 0 : 0.5;
+                gradient[g.red] += actual - expected;
+                gradient[g.blue] -= actual - expected;
+            }
+            double mean = 0;
+            for (int p = 0; p < players; p++) {
+                if (played[p] > 0) {
+                    // Clamped so a player who won or lost everything ends finite
+                    ratings[p] = Math.max(-1000, Math.min(1000, ratings[p] + 100 * gradient[p] / played[p]));
+                }
+                mean += ratings[p];
+            }
+            mean /= players;
+            for (int p = 0; p < players; p++) {
+                ratings[p] -= mean;
+            }
+        }
+        return ratings;
+    }
+
+    /**
+     * Prints one line per entrant and the overall throughput.
+     *
+     * @param games        the results
+     * @param elapsedNanos the wall-clock time the tournament took
+     */
+    public void report(List<Game> games, long elapsedNanos) {
+        int n = entrants.size();
+        double[] points = new double[n];
+        int[] played = new int[n];
+        long plies = 0;
+        int adjudicated = 0;
+        for (Game g : games) {
+            played[g.red]++;
+            played[g.blue]++;
+            if (g.winner == GameState.RED) {
+                points[g.red] += 1;
+            } else if (g.winner == GameState.BLUE) {
+                points[g.blue] += 1;
+            } else {
+                points[g.red] += 0.5;
+                points[g.blue] += 0.5;
+            }
+            plies += g.plies;
+            adjudicated += g.adjudicated ? 1 : 0;
+        }
+        double[] ratings = elo(games, n);
+
+        System.out.printf("%-24s %6s %8s %7s%n", "player", "games", "score", "elo");
+        for (int p = 0; p < n; p++) {
+            System.out.printf("%-24s %6d %7.1f%% %+7.0f%n",
+                    entrants.get(p), played[p], played[p] == 0 ? 0 : 100 * points[p] / played[p], ratings[p]);
+        }
+        double seconds = Math.max(1, elapsedNanos) / 1e9;
+        System.out.printf("%d games (%d adjudicated), %.1f placements per game, %.1f s, %.1f games/s%n",
+                games.size(), adjudicated, games.isEmpty() ? 0 : (double) plies / games.size(), seconds, games.size() / seconds);
+    }
+
+    /**
+     * Runs a tournament from the command line.
+     *
+     * @param args options of the form {@code --name=value}
+     */
+    public static void main(String[] args) {
+        List<String> entrants = new ArrayList<>();
+        Mode mode = Mode.ROUND_ROBIN;
+        int games = 10, radius = 6;
+        Board.Shape shape = Board.Shape.HEXAGON;
+        long gameMillis = 0, seed = 1;
+        int parallel = Runtime.getRuntime().availableProcessors();
+        String recordTo = null;
+        try {
+            for (String arg : args) {
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith("--players=")) {
+                    entrants.addAll(Arrays.asList(value.split(",")));
+                } else if (arg.startsWith("--mode=")) {
+                    if (value.equals("gauntlet")) {
+                        mode = Mode.GAUNTLET;
+                    } else if (value.equals("roundrobin")) {
+                        mode = Mode.ROUND_ROBIN;
+                    } else {
+                        throw new IllegalArgumentException("Unknown mode: " + value);
+                    }
+                } else if (arg.startsWith("--games=")) {
+                    games = Integer.parseInt(value);
+                } else if (arg.startsWith("--radius=")) {
+                    radius = Integer.parseInt(value);
+                } else if (arg.startsWith("--shape=")) {
+                    try {
+                        shape = Board.Shape.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown shape: " + value);
+                    }
+                } else if (arg.startsWith("--game-millis=")) {
+                    gameMillis = Long.parseLong(value);
+                } else if (arg.startsWith("--seed=")) {
+                    seed = Long.parseLong(value);
+                } else if (arg.startsWith("--parallel=")) {
+                    parallel = Integer.parseInt(value);
+                } else if (arg.startsWith("--record=")) {
+                    recordTo = value;
+                } else {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            Tournament tournament = new Tournament(entrants, Board.of(shape, radius), mode, games, gameMillis, seed);
+            try (GameArchiveWriter recorder = recordTo != null ? new GameArchiveWriter(Path.of(recordTo)) : null) {
+                tournament.recordTo(recorder);
+                tournament.parallel(parallel);
+                long start = System.nanoTime();
+                List<Game> results = tournament.play();
+                tournament.report(results, System.nanoTime() - start);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("java HexGrid tournament --players=<player>,<player>[,...] [--mode=roundrobin|gauntlet]");
+            System.err.println("    [--games=<per pairing>] [--radius=<radius>] [--shape=<shape>] [--game-millis=<limit>] [--seed=<seed>]");
+            System.err.println("    [--parallel=<games>] [--record=<dir>]");
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Game archive error: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
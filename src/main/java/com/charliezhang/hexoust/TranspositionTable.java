@@ -0,0 +1,197 @@
+package com.charliezhang.hexoust;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size transposition table that any number of search threads can share
+ * without locks.
+ * <p>
+ * Each entry is a pair of longs: the packed data, and the position hash XORed
+ * with that data. A reader only accepts an entry whose two halves agree with the
+ * hash it is looking for, so an entry torn by a concurrent write is simply seen
+ * as a miss. Entries live in buckets of two; a store replaces the entry for the
+ * same position if there is one, otherwise the shallower entry or one left over
+ * from an earlier search.
+ */
+public final class TranspositionTable {
+
+    /** The stored score is exact. */
+    public static final int EXACT = 1;
+
+    /** The stored score is a lower bound (the search failed high). */
+    public static final int LOWER = 2;
+
+    /** The stored score is an upper bound (the search failed low). */
+    public static final int UPPER = 3;
+
+    /*
+     * Data layout, from the low bits: bound (2), depth (8), age (6),
+     * move + 1 (16), score (32). A stored entry always has a non-zero bound,
+     * so a data word of 0 means "empty".
+     */
+    private static final int DEPTH_SHIFT = 2;
+    private static final int AGE_SHIFT = 10;
+    private static final int MOVE_SHIFT = 16;
+    private static final int SCORE_SHIFT = 32;
+
+    private final long[] checks;
+    private final long[] data;
+    private final int mask;
+    private volatile int age;
+
+    /**
+     * Creates a table using roughly the given amount of memory.
+     *
+     * @param megabytes the memory budget, at least 1
+     */
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(2, (long) megabytes * 1024 * 1024 / 16);
+        int capacity = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.checks = new long[capacity];
+        this.data = new long[capacity];
+        this.mask = capacity - 2;
+    }
+
+    /**
+     * @return the number of entries the table can hold
+     */
+    public int capacity() {
+        return data.length;
+    }
+
+    /**
+     * Marks the start of a new search, so entries from earlier searches are
+     * replaced first.
+     */
+    public void newSearch() {
+        age = (age + 1) & 63;
+    }
+
+    /**
+     * Empties the table. Must not run concurrently with searches.
+     */
+    public void clear() {
+        Arrays.fill(checks, 0L);
+        Arrays.fill(data, 0L);
+    }
+
+    /**
+     * Empties one slot, so tests can set up bucket states directly.
+     *
+     * @param slot the slot index, below {@link #capacity()}
+     */
+    void erase(int slot) {
+        data[slot] = 0L;
+        checks[slot] = 0L;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param hash the position hash
+     * @return the packed entry, or 0 if the position is not stored
+     */
+    public long probe(long hash) {
+        int i = (int) hash & mask;
+        for (int k = i; k < i + 2; k++) {
+            long d = data[k];
+            if (d != 0 && (checks[k] ^ d) == hash) {
+                return d;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores the result of searching a position.
+     *
+     * @param hash  the position hash
+     * @param move  the best move found, or -1
+     * @param score the score
+     * @param depth the search depth, 0 to 255
+     * @param bound EXACT, LOWER or UPPER
+     */
+    public void store(long hash, int move, int score, int depth, int bound) {
+        int currentAge = age;
+        long d = ((long) score << SCORE_SHIFT)
+                | ((long) ((move + 1) & 0xFFFF) << MOVE_SHIFT)
+                | ((long) currentAge << AGE_SHIFT)
+                | ((long) (depth & 0xFF) << DEPTH_SHIFT)
+                | bound;
+
+        int i = (int) hash & mask;
+        int victim = -1;
+        for (int k = i; k < i + 2; k++) {
+            long old = data[k];
+            if (old != 0 && (checks[k] ^ old) == hash) {
+                victim = k;
+                break;
+            }
+        }
+        if (victim < 0) {
+            // Only when neither slot holds the position: an empty slot, else the least valuable
+            int victimWorth = Integer.MAX_VALUE;
+            for (int k = i; k < i + 2; k++) {
+                long old = data[k];
+                // Entries from earlier searches are worth less than any current one
+                int worth = old == 0 ? -1 : depth(old) + (age(old) == currentAge ? 256 : 0);
+                if (worth < victimWorth) {
+                    victimWorth = worth;
+                    victim = k;
+                }
+            }
+        }
+        data[victim] = d;
+        checks[victim] = hash ^ d;
+    }
+
+    /**
+     * @return the number of entries, per thousand, written during the current search
+     */
+    public int hashfull() {
+        int sample = Math.min(1000, data.length);
+        int used = 0;
+        for (int k = 0; k < sample; k++) {
+            if (data[k] != 0 && age(data[k]) == age) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    /**
+     * @param entry a packed entry returned by {@link #probe(long)}
+     * @return the stored move, or -1
+     */
+    public static int move(long entry) {
+        return (int) ((entry >>> MOVE_SHIFT) & 0xFFFF) - 1;
+    }
+
+    /**
+     * @param entry a packed entry returned by {@link #probe(long)}
+     * @return the stored score
+     */
+    public static int score(long entry) {
+        return (int) (entry >> SCORE_SHIFT);
+    }
+
+    /**
+     * @param entry a packed entry returned by {@link #probe(long)}
+     * @return the stored depth
+     */
+    public static int depth(long entry) {
+        return (int) ((entry >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    /**
+     * @param entry a packed entry returned by {@link #probe(long)}
+     * @return EXACT, LOWER or UPPER
+     */
+    public static int bound(long entry) {
+        return (int) (entry & 3);
+    }
+
+    private static int age(long entry) {
+        return (int) ((entry >>> AGE_SHIFT) & 63);
+    }
+}
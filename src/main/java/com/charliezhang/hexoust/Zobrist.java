@@ -0,0 +1,58 @@
+package com.charliezhang.hexoust;
+
+/**
+ * Zobrist keys for HexOust positions. A position's hash is the XOR of one key
+ * per stone, plus {@link #SIDE} when Blue is to move, so it can be updated
+ * incrementally as stones are placed and captured.
+ * <p>
+ * Keys are derived from a fixed seed, so hashes are identical across runs and
+ * can be stored in files such as opening books.
+ */
+public final class Zobrist {
+
+    /** Key XORed into the hash while Blue is to move. */
+    public static final long SIDE = mix(0x5DEECE66DL);
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the key of every stone on a board of the given size.
+     *
+     * @param cells the number of cells on the board
+     * @return keys indexed by {@code cell * 2 + player}
+     */
+    static long[] keys(int cells) {
+        long[] keys = new long[cells * 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = mix(0x9E3779B97F4A7C15L * (i + 1));
+        }
+        return keys;
+    }
+
+    /**
+     * Computes the hash of a position from scratch.
+     *
+     * @param state the position
+     * @return the hash, equal to {@link GameState#hash()}
+     */
+    public static long hash(GameState state) {
+        long[] keys = state.board().zobristKeys();
+        long hash = state.sideToMove() == GameState.BLUE ? SIDE : 0L;
+        for (int player = GameState.RED; player <= GameState.BLUE; player++) {
+            for (int cell = state.nextStone(player, 0); cell >= 0; cell = state.nextStone(player, cell + 1)) {
+                hash ^= keys[cell * 2 + player];
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * The SplitMix64 finaliser, which turns consecutive seeds into well mixed keys.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,68 @@
+package com.charliezhang.hexoust;
+
+import org.junit.jupiter.api.Test;
+import javax.swing.SwingUtilities;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the fixed-step animation scheduler. Each test runs on the
+ * event dispatch thread, so the scheduler's own timer cannot tick in between.
+ */
+class AnimationSchedulerTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    /**
+     * Tests that frames run whole fixed steps, repaint once per frame that
+     * stepped, cap a late frame, and stop once the animation finishes.
+     */
+    @Test
+    void testFixedStepsAndCoalescedRepaints() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            int[] repaints = {0};
+            int[] steps = {0};
+            AnimationScheduler scheduler = new AnimationScheduler(() -> repaints[0]++);
+            scheduler.start(() -> ++steps[0] < 10);
+            // Read the clock after start(), so frame times are never short of it
+            long start = System.nanoTime();
+
+            scheduler.tick(start + 100 * MILLIS);
+            assertEquals(3, steps[0], "100 ms should run three 30 ms steps");
+            assertEquals(1, repaints[0], "One frame should request one repaint");
+
+            scheduler.tick(start + 110 * MILLIS);
+            assertEquals(3, steps[0], "A frame shorter than the remaining step should not step");
+            assertEquals(1, repaints[0], "A frame that did not step should not repaint");
+
+            scheduler.tick(start + 2000 * MILLIS);
+            assertEquals(3 + AnimationScheduler.MAX_STEPS_PER_FRAME, steps[0], "A late frame should be capped");
+            assertTrue(scheduler.droppedMillis() > 0, "The time beyond the cap should be dropped");
+            assertTrue(scheduler.isAnimating());
+
+            scheduler.tick(start + 2100 * MILLIS);
+            assertEquals(10, steps[0], "The animation should stop after reporting it has finished");
+            assertFalse(scheduler.isAnimating());
+            assertEquals(4, scheduler.frames());
+            assertTrue(scheduler.maxFrameMillis() >= 1890);
+        });
+    }
+
+    /**
+     * Tests that a cancelled animation runs no more steps.
+     */
+    @Test
+    void testCancel() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            int[] steps = {0};
+            AnimationScheduler scheduler = new AnimationScheduler(() -> { });
+            AnimationScheduler.Animation animation = () -> ++steps[0] > 0;
+            long start = System.nanoTime();
+            scheduler.start(animation);
+            scheduler.cancel(animation);
+            scheduler.tick(start + 100 * MILLIS);
+
+            assertEquals(0, steps[0]);
+            assertFalse(scheduler.isAnimating());
+        });
+    }
+}
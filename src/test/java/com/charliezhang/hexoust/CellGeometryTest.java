@@ -0,0 +1,38 @@
+package com.charliezhang.hexoust;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the per-cell geometry cache.
+ */
+class CellGeometryTest {
+
+    /**
+     * Tests that the geometry cache rounds each cell once and agrees with the layout.
+     */
+    @Test
+    void testCellGeometry() {
+        Layout layout = new Layout(Layout.flat, new Point(25, 25), new Point(400, 400));
+        Board board = Board.hexagon(2);
+        CellGeometry geometry = new CellGeometry(polygons(layout, board));
+
+        assertEquals(board.size(), geometry.size());
+        for (int cell = 0; cell < board.size(); cell++) {
+            Point center = layout.hexToPixel(board.cube(cell));
+            assertEquals(center.x, geometry.center(cell).x, 1e-9);
+            assertEquals(center.y, geometry.center(cell).y, 1e-9);
+            assertTrue(geometry.bounds(cell).contains((int) center.x, (int) center.y), "The bounds should contain the center");
+            assertSame(geometry.polygon(cell), geometry.polygon(cell), "Outlines should be built once");
+        }
+    }
+
+    private static ArrayList<ArrayList<Point>> polygons(Layout layout, Board board) {
+        ArrayList<ArrayList<Point>> hexagons = new ArrayList<>();
+        for (int cell = 0; cell < board.size(); cell++) {
+            hexagons.add(layout.polygonCorners(board.cube(cell)));
+        }
+        return hexagons;
+    }
+}
@@ -0,0 +1,147 @@
+package com.charliezhang.hexoust;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the retrograde solver and the tablebase it writes.
+ */
+class EndgameSolverTest {
+
+    /**
+     * Tests that a position rebuilt from its key has the same stones, side to
+     * move and result as the game it was taken from.
+     */
+    @Test
+    void testKeyRoundTrip() {
+        Board board = Board.rhombus(2);
+        Random random = new Random(23);
+        int[] moves = new int[board.size()];
+        for (int game = 0; game < 50; game++) {
+            GameState state = new GameState(board);
+            while (true) {
+                GameState rebuilt = Tablebase.position(board, Tablebase.key(state));
+                assertEquals(Tablebase.key(state), Tablebase.key(rebuilt));
+                assertEquals(state.winner(), rebuilt.winner());
+                assertEquals(state.hash(), rebuilt.hash());
+                if (state.isTerminal()) {
+                    break;
+                }
+                state.play(moves[random.nextInt(state.legalMoves(moves))]);
+            }
+        }
+    }
+
+    /**
+     * Tests that every value read back from the file agrees with the solver
+     * and with the values of the positions its moves lead to.
+     */
+    @Test
+    void testValuesAreConsistent(@TempDir Path dir) throws Exception {
+        for (Board board : new Board[] {Board.hexagon(1), Board.rhombus(1)}) {
+            EndgameSolver solver = new EndgameSolver(board, 2, 1 << 20);
+            solver.solve();
+            Path file = dir.resolve("board-" + board.size() + ".hxt");
+            solver.write(file);
+            assertEquals(solver.positions(), solver.count(Tablebase.WIN) + solver.count(Tablebase.LOSS) + solver.count(Tablebase.DRAW));
+
+            try (Tablebase tablebase = Tablebase.open(file)) {
+                assertEquals(solver.positions(), tablebase.size());
+                Random random = new Random(board.size());
+                int[] moves = new int[board.size()];
+                for (int game = 0; game < 200; game++) {
+                    GameState state = new GameState(board);
+                    while (true) {
+                        Tablebase.Entry entry = tablebase.probe(state);
+                        assertEquals(solver.probe(state), entry);
+                        checkAgainstChildren(tablebase, state, entry);
+                        if (state.isTerminal()) {
+                            break;
+                        }
+                        state.play(moves[random.nextInt(state.legalMoves(moves))]);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void checkAgainstChildren(Tablebase tablebase, GameState state, Tablebase.Entry entry) {
+        if (state.isTerminal()) {
+            assertEquals(state.winner() == state.sideToMove() ? Tablebase.WIN : Tablebase.LOSS, entry.outcome());
+            assertEquals(0, entry.distance());
+            assertEquals(-1, entry.bestMove());
+            return;
+        }
+        int side = state.sideToMove();
+        boolean sawBest = false;
+        for (int move : state.legalMoves()) {
+            state.play(move);
+            Tablebase.Entry child = tablebase.probe(state);
+            int forMover = state.sideToMove() == side ? child.outcome()
+                    : child.outcome() == Tablebase.DRAW ? Tablebase.DRAW : Tablebase.WIN + Tablebase.LOSS - child.outcome();
+            state.undo();
+            if (entry.outcome() == Tablebase.LOSS) {
+                assertEquals(Tablebase.LOSS, forMover, "A lost position has no saving move");
+                assertTrue(child.distance() < entry.distance());
+            } else if (entry.outcome() == Tablebase.DRAW) {
+                assertNotEquals(Tablebase.WIN, forMover, "A drawn position has no winning move");
+            }
+            if (move == entry.bestMove()) {
+                sawBest = true;
+                assertEquals(entry.outcome(), forMover, "The best move keeps the value");
+                if (entry.outcome() != Tablebase.DRAW) {
+                    assertEquals(entry.distance() - 1, child.distance());
+                }
+            }
+        }
+        assertTrue(sawBest, "The best move is legal");
+    }
+
+    /**
+     * Tests that the tablebase player converts a won opening against random
+     * play every time.
+     */
+    @Test
+    void testPerfectPlayerWins(@TempDir Path dir) throws Exception {
+        Board board = Board.triangle(1);
+        EndgameSolver solver = new EndgameSolver(board, 2, 1 << 20);
+        solver.solve();
+        Path file = dir.resolve("triangle.hxt");
+        solver.write(file);
+        assertEquals(Tablebase.WIN, solver.probe(new GameState(board)).outcome(), "Red wins the 10-cell triangle");
+
+        try (Player perfect = Players.create("tablebase:" + file, 1); Player random = new RandomPlayer(5)) {
+            for (int game = 0; game < 20; game++) {
+                GameState state = new GameState(board);
+                while (!state.isTerminal()) {
+                    Player mover = state.sideToMove() == GameState.RED ? perfect : random;
+                    state.play(mover.chooseMove(state.copy()));
+                }
+                assertEquals(GameState.RED, state.winner());
+            }
+        }
+    }
+
+    /**
+     * Tests that boards too large for a key, or with more positions than the
+     * limit, are refused, and that a table only answers for its own board.
+     */
+    @Test
+    void testLimits(@TempDir Path dir) throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> new EndgameSolver(Board.hexagon(3), 1, 1 << 20));
+        assertThrows(IllegalStateException.class, () -> new EndgameSolver(Board.hexagon(2), 1, 1000).solve());
+
+        EndgameSolver solver = new EndgameSolver(Board.hexagon(1), 1, 1000);
+        solver.solve();
+        Path file = dir.resolve("hexagon.hxt");
+        solver.write(file);
+        try (Tablebase tablebase = Tablebase.open(file)) {
+            assertTrue(tablebase.covers(Board.hexagon(1)));
+            assertFalse(tablebase.covers(Board.rhombus(1)));
+            assertNull(tablebase.probe(new GameState(Board.rhombus(1))));
+        }
+    }
+}
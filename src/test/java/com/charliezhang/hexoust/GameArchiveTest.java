@@ -0,0 +1,172 @@
+package com.charliezhang.hexoust;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the game record archive.
+ */
+class GameArchiveTest {
+
+    private static GameState randomGame(Board board, Random random, int maxMoves) {
+        GameState state = new GameState(board);
+        int[] moves = new int[board.size()];
+        while (!state.isTerminal() && state.moveCount() < maxMoves) {
+            int count = state.legalMoves(moves);
+            state.play(moves[random.nextInt(count)]);
+        }
+        return state;
+    }
+
+    /**
+     * Tests that recorded games replay to the same positions, with the same
+     * results and capture flags, after rolling over several segments.
+     */
+    @Test
+    void testRoundTripAcrossSegments(@TempDir Path dir) throws IOException {
+        Board board = Board.hexagon(3);
+        Random random = new Random(17);
+        List<GameState> games = new ArrayList<>();
+        try (GameArchiveWriter writer = new GameArchiveWriter(dir, 256)) {
+            for (int i = 0; i < 40; i++) {
+                GameState game = randomGame(board, random, i % 5 == 0 ? 6 : Integer.MAX_VALUE);
+                games.add(game);
+                writer.append(game);
+            }
+        }
+        assertTrue(Files.exists(GameArchive.segmentPath(dir, 1)), "Small segments should have rolled over");
+
+        try (GameArchive archive = GameArchive.open(dir)) {
+            assertEquals(games.size(), archive.size());
+            GameArchive.Cursor cursor = archive.cursor();
+            int[] moves = new int[1024];
+            for (GameState expected : games) {
+                assertTrue(cursor.next());
+                assertEquals(board.size(), cursor.cells());
+                assertEquals(expected.winner(), cursor.result());
+                assertEquals(expected.moveCount(), cursor.moveCount());
+                cursor.moves(moves);
+                for (int i = 0; i < expected.moveCount(); i++) {
+                    assertEquals(expected.moveAt(i), GameArchive.cell(moves[i]));
+                    assertEquals(expected.capturesAt(i) > 0, GameArchive.captured(moves[i]));
+                }
+                GameState replayed = new GameState(board);
+                cursor.replay(replayed, moves);
+                assertEquals(expected.hash(), replayed.hash());
+            }
+            assertFalse(cursor.next());
+        }
+    }
+
+    /**
+     * Tests random access through the index and appending to a reopened archive.
+     */
+    @Test
+    void testSeekAndReopen(@TempDir Path dir) throws IOException {
+        Board board = Board.hexagon(2);
+        Random random = new Random(3);
+        List<GameState> games = new ArrayList<>();
+        for (int session = 0; session < 2; session++) {
+            try (GameArchiveWriter writer = new GameArchiveWriter(dir, 128)) {
+                for (int i = 0; i < 10; i++) {
+                    GameState game = randomGame(board, random, Integer.MAX_VALUE);
+                    games.add(game);
+                    writer.append(game);
+                }
+            }
+        }
+
+        try (GameArchive archive = GameArchive.open(dir)) {
+            assertEquals(20, archive.size());
+            GameArchive.Cursor cursor = archive.cursor();
+            int[] moves = new int[256];
+            for (int n : new int[] {19, 0, 11, 7, 12}) {
+                cursor.seek(n);
+                assertEquals(n, cursor.game());
+                GameState replayed = new GameState(board);
+                cursor.replay(replayed, moves);
+                assertEquals(games.get(n).hash(), replayed.hash(), "Game " + n);
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> cursor.seek(20));
+        }
+    }
+
+    /**
+     * Tests that reopening an archive after a crash that tore the last index
+     * entry drops the torn entry, so games appended afterwards are indexed
+     * where they were written.
+     */
+    @Test
+    void testReopenAfterTornIndexEntry(@TempDir Path dir) throws IOException {
+        Board board = Board.hexagon(2);
+        Random random = new Random(5);
+        List<GameState> games = new ArrayList<>();
+        try (GameArchiveWriter writer = new GameArchiveWriter(dir)) {
+            for (int i = 0; i < 3; i++) {
+                GameState game = randomGame(board, random, Integer.MAX_VALUE);
+                games.add(game);
+                writer.append(game);
+            }
+        }
+        // The crash wrote a fourth record and three bytes of its index entry
+        Files.write(GameArchive.segmentPath(dir, 0), new byte[] {9, 1, 2, 3}, StandardOpenOption.APPEND);
+        Files.write(GameArchive.indexPath(dir, 0), new byte[] {0, 0, 0}, StandardOpenOption.APPEND);
+
+        try (GameArchiveWriter writer = new GameArchiveWriter(dir)) {
+            for (int i = 0; i < 2; i++) {
+                GameState game = randomGame(board, random, Integer.MAX_VALUE);
+                games.add(game);
+                writer.append(game);
+            }
+        }
+        assertEquals(5 * Long.BYTES, Files.size(GameArchive.indexPath(dir, 0)));
+
+        try (GameArchive archive = GameArchive.open(dir)) {
+            assertEquals(games.size(), archive.size());
+            GameArchive.Cursor cursor = archive.cursor();
+            int[] moves = new int[256];
+            for (GameState expected : games) {
+                assertTrue(cursor.next());
+                GameState replayed = new GameState(board);
+                cursor.replay(replayed, moves);
+                assertEquals(expected.hash(), replayed.hash());
+            }
+        }
+    }
+
+    /**
+     * Tests that a game is tied to its board, not just to a board with as
+     * many cells: a hexagon of radius 5 and a triangle of radius 4 both have
+     * 91 cells.
+     */
+    @Test
+    void testBoardsOfTheSameSizeAreTold(@TempDir Path dir) throws IOException {
+        Board hexagon = Board.hexagon(5);
+        Board triangle = Board.triangle(4);
+        assertEquals(hexagon.size(), triangle.size());
+        GameState game = randomGame(hexagon, new Random(91), 20);
+        try (GameArchiveWriter writer = new GameArchiveWriter(dir)) {
+            writer.append(game);
+        }
+
+        try (GameArchive archive = GameArchive.open(dir)) {
+            GameArchive.Cursor cursor = archive.cursor();
+            assertTrue(cursor.next());
+            assertTrue(cursor.playedOn(hexagon));
+            assertFalse(cursor.playedOn(triangle));
+            int[] moves = new int[cursor.moveCount()];
+            GameState replayed = new GameState(hexagon);
+            cursor.replay(replayed, moves);
+            assertEquals(game.hash(), replayed.hash());
+            assertThrows(IllegalArgumentException.class, () -> cursor.replay(new GameState(triangle), moves));
+        }
+    }
+}
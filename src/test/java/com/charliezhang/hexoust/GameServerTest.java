@@ -0,0 +1,174 @@
+package com.charliezhang.hexoust;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the multi-game session server.
+ */
+class GameServerTest {
+
+    private GameServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new GameServer(InetAddress.getLoopbackAddress(), 0, 1000);
+        Thread.ofVirtual().start(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Tests the commands and their errors without a socket.
+     */
+    @Test
+    void testCommands() {
+        assertEquals("OK 1 19", server.execute("NEW hexagon 2"));
+        assertEquals("OK 0 blue none", server.execute("PLAY 1 9"));
+        assertTrue(server.execute("PLAY 1 9").startsWith("ERR Illegal move"));
+        assertTrue(server.execute("LEGAL 1").startsWith("OK 18 0 1 2 "), "Blue may play on any empty cell");
+        assertEquals("OK blue none 1 .........R.........", server.execute("STATE 1"));
+        assertEquals("OK 9 red", server.execute("UNDO 1"));
+        assertTrue(server.execute("UNDO 1").startsWith("ERR"));
+        assertTrue(server.execute("PLAY 2 0").startsWith("ERR No game"));
+        assertTrue(server.execute("PLAY 1 x").startsWith("ERR Not a number"));
+        assertTrue(server.execute("NEW octagon").startsWith("ERR Unknown shape"));
+        assertTrue(server.execute("FLY").startsWith("ERR Unknown command"));
+        assertEquals("OK", server.execute("END 1"));
+        assertEquals(0, server.games());
+    }
+
+    /**
+     * Plays many random games at once over separate connections and checks
+     * that each game ends exactly as the same moves do on a local position.
+     */
+    @Test
+    void testConcurrentGames() throws Exception {
+        Board board = Board.hexagon(3);
+        List<Future<Void>> clients = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < 50; c++) {
+                long seed = c;
+                clients.add(executor.submit(() -> {
+                    playRandomGame(board, new Random(seed));
+                    return null;
+                }));
+            }
+            for (Future<Void> client : clients) {
+                client.get();
+            }
+        }
+        assertEquals(0, server.games(), "Every client ends its game");
+    }
+
+    /**
+     * Tests that the games of a connection are ended when it closes, so a
+     * client that disconnects without END does not use up the server.
+     */
+    @Test
+    void testDisconnectEndsGames() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < 3; i++) {
+                out.println("NEW hexagon 2");
+                assertTrue(in.readLine().startsWith("OK "));
+            }
+            out.println("END " + server.execute("NEW").split(" ")[1]);
+            assertTrue(in.readLine().startsWith("OK"), "Any connection may end any game");
+            assertEquals(3, server.games());
+        }
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (server.games() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, server.games(), "Closing the connection ends the games it created");
+    }
+
+    /**
+     * Tests that concurrent NEW commands never host more than the limit, and
+     * that ending a game frees its slot.
+     */
+    @Test
+    void testGameLimitUnderContention() throws Exception {
+        try (GameServer small = new GameServer(InetAddress.getLoopbackAddress(), 0, 10)) {
+            List<Future<String>> responses = new ArrayList<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 100; i++) {
+                    responses.add(executor.submit(() -> small.execute("NEW hexagon 1")));
+                }
+            }
+            long accepted = 0;
+            String id = null;
+            for (Future<String> response : responses) {
+                if (response.get().startsWith("OK ")) {
+                    accepted++;
+                    id = response.get().split(" ")[1];
+                } else {
+                    assertEquals("ERR Server is full", response.get());
+                }
+            }
+            assertEquals(10, accepted);
+            assertEquals(10, small.games());
+            assertEquals("OK", small.execute("END " + id));
+            assertTrue(small.execute("NEW").startsWith("OK "));
+        }
+    }
+
+    private void playRandomGame(Board board, Random random) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            out.println("NEW hexagon 3");
+            String id = in.readLine().split(" ")[1];
+
+            GameState local = new GameState(board);
+            int[] moves = new int[board.size()];
+            while (!local.isTerminal()) {
+                out.println("LEGAL " + id);
+                String[] legal = in.readLine().split(" ");
+                int count = local.legalMoves(moves);
+                assertEquals(count, Integer.parseInt(legal[1]));
+                int cell = Integer.parseInt(legal[2 + random.nextInt(count)]);
+                local.play(cell);
+                out.println("PLAY " + id + " " + cell);
+                assertTrue(in.readLine().startsWith("OK "));
+            }
+
+            out.println("STATE " + id);
+            String[] state = in.readLine().split(" ");
+            assertEquals(local.winner() == GameState.RED ? "red" : "blue", state[2]);
+            for (int cell = 0; cell < board.size(); cell++) {
+                char expected = local.owner(cell) == GameState.RED ? 'R' : local.owner(cell) == GameState.BLUE ? 'B' : '.';
+                assertEquals(expected, state[4].charAt(cell));
+            }
+            out.println("END " + id);
+            assertEquals("OK", in.readLine());
+            out.println("QUIT");
+        }
+    }
+}
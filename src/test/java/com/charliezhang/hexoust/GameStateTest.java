@@ -0,0 +1,349 @@
+package com.charliezhang.hexoust;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the headless GameState rules engine, covering placement legality,
+ * captures, the extra turn granted by a capture, and win detection.
+ */
+class GameStateTest {
+
+    private Board board;
+    private GameState state;
+
+    /**
+     * Sets up an empty radius-2 board before each test case.
+     */
+    @BeforeEach
+    void setUp() {
+        board = Board.hexagon(2);
+        state = new GameState(board);
+    }
+
+    /**
+     * Helper method to look up the cell id at the given axial coordinates.
+     */
+    private int cell(int q, int r) {
+        return board.indexOf(new HexCube(q, r, -q - r));
+    }
+
+    /**
+     * Verifies the board size and that the centre cell has six neighbors.
+     */
+    @Test
+    void testHexagonBoard() {
+        assertEquals(19, board.size(), "A radius-2 board should have 19 cells");
+        assertEquals(6, board.degree(cell(0, 0)), "The centre cell should have 6 neighbors");
+        assertEquals(3, board.degree(cell(2, 0)), "A corner cell should have 3 neighbors");
+        assertEquals(-1, board.neighbor(cell(2, 0), 0), "Neighbors off the board should be -1");
+        assertEquals(cell(1, 0), board.neighbor(cell(0, 0), 0), "Direction 0 should follow HexCube.direction(0)");
+    }
+
+    /**
+     * Verifies the cell counts of every board shape and that their neighbour
+     * tables are symmetric.
+     */
+    @Test
+    void testBoardShapes() {
+        for (int radius : new int[] {0, 1, 5, 60}) {
+            Board hexagon = Board.of(Board.Shape.HEXAGON, radius);
+            Board rhombus = Board.of(Board.Shape.RHOMBUS, radius);
+            Board triangle = Board.of(Board.Shape.TRIANGLE, radius);
+            assertEquals(3 * radius * (radius + 1) + 1, hexagon.size());
+            assertEquals((2 * radius + 1) * (2 * radius + 1), rhombus.size());
+            assertEquals((3 * radius + 1) * (3 * radius + 2) / 2, triangle.size());
+            for (Board b : new Board[] {hexagon, rhombus, triangle}) {
+                assertEquals(0, b.cube(b.indexOf(0, 0)).q, "Every shape should contain the centre cell");
+                for (int cell = 0; cell < b.size(); cell++) {
+                    for (int d = 0; d < Board.DIRECTIONS; d++) {
+                        int n = b.neighbor(cell, d);
+                        if (n >= 0) {
+                            assertEquals(cell, b.neighbor(n, (d + 3) % Board.DIRECTIONS));
+                        }
+                    }
+                }
+            }
+        }
+        Board triangle = Board.triangle(2);
+        assertEquals(6, triangle.degree(triangle.indexOf(0, 0)), "The centre of a triangle is interior");
+        assertEquals(2, triangle.degree(triangle.indexOf(-2, -2)), "A triangle corner has two neighbours");
+    }
+
+    /**
+     * Tests that every cell is legal on the empty board and that a placement passes the turn.
+     */
+    @Test
+    void testOpeningMove() {
+        assertEquals(19, state.legalMoves().length, "Every cell should be legal on an empty board");
+
+        assertEquals(0, state.play(cell(0, 0)));
+        assertEquals(GameState.RED, state.owner(cell(0, 0)));
+        assertEquals(GameState.BLUE, state.sideToMove(), "Blue should move after a non-capturing placement");
+        assertFalse(state.isLegal(cell(0, 0)), "An occupied cell should not be legal");
+    }
+
+    /**
+     * Tests that joining a friendly group which touches no enemy stone is rejected.
+     */
+    @Test
+    void testJoiningWithoutEnemyIsIllegal() {
+        state.play(cell(0, 0));   // red
+        state.play(cell(2, -2));  // blue, far away
+
+        assertFalse(state.isLegal(cell(1, 0)), "Red may not grow a group that touches no blue stone");
+        assertThrows(IllegalArgumentException.class, () -> state.play(cell(1, 0)));
+        assertTrue(state.isLegal(cell(-2, 2)), "A placement touching no friendly stone is legal");
+    }
+
+    /**
+     * Tests that a capture removes adjacent enemy stones, keeps the turn, and can win the game.
+     */
+    @Test
+    void testCaptureKeepsTurnAndWins() {
+        state.play(cell(0, 0));   // red
+        state.play(cell(1, 0));   // blue, adjacent to red
+
+        assertEquals(1, state.play(cell(0, 1)), "Red should capture the single blue stone");
+        assertEquals(GameState.NONE, state.owner(cell(1, 0)));
+        assertEquals(0, state.stoneCount(GameState.BLUE));
+        assertTrue(state.isTerminal(), "The game should end once blue has no stones");
+        assertEquals(GameState.RED, state.winner());
+    }
+
+    /**
+     * Tests that a capture which leaves enemy stones on the board grants another move.
+     */
+    @Test
+    void testCaptureGrantsExtraTurn() {
+        state.play(cell(0, 0));   // red
+        state.play(cell(1, 0));   // blue
+        state.play(cell(-2, 0));  // red
+        state.play(cell(2, -2));  // blue
+
+        assertEquals(1, state.play(cell(0, 1)), "Red should capture the adjacent blue stone");
+        assertEquals(GameState.RED, state.sideToMove(), "Red should move again after capturing");
+        assertEquals(GameState.NONE, state.winner());
+    }
+
+    /**
+     * Tests that copies are independent of the original position.
+     */
+    @Test
+    void testCopyIsIndependent() {
+        state.play(cell(0, 0));
+        GameState copy = state.copy();
+        copy.play(cell(2, -2));
+
+        assertEquals(GameState.NONE, state.owner(cell(2, -2)));
+        assertEquals(1, state.placements());
+        assertEquals(2, copy.placements());
+    }
+
+    /**
+     * Tests stone counting and iteration on a board that spans several bitboard words.
+     */
+    @Test
+    void testStonesAcrossWords() {
+        GameState large = new GameState(Board.hexagon(6));
+        large.place(3, GameState.RED);
+        large.place(70, GameState.RED);
+        large.place(126, GameState.RED);
+        large.place(64, GameState.BLUE);
+
+        assertEquals(3, large.stoneCount(GameState.RED));
+        assertEquals(1, large.stoneCount(GameState.BLUE));
+        assertEquals(70, large.nextStone(GameState.RED, 4));
+        assertEquals(126, large.nextStone(GameState.RED, 71));
+        assertEquals(-1, large.nextStone(GameState.RED, 127));
+        assertEquals(GameState.BLUE, large.owner(64));
+
+        assertTrue(large.clear(70));
+        assertEquals(GameState.NONE, large.owner(70));
+        assertEquals(2, large.stoneCount(GameState.RED));
+    }
+
+    /**
+     * Plays random games and checks every legal move set against a flood-fill
+     * reference, then undoes every move and checks the board is restored.
+     */
+    @Test
+    void testRandomGamesMatchReferenceAndUndo() {
+        Board large = Board.hexagon(4);
+        Random random = new Random(38);
+        for (int game = 0; game < 20; game++) {
+            GameState g = new GameState(large);
+            int[] moves = new int[large.size()];
+            int[][] snapshots = new int[400][];
+            long[] hashes = new long[400];
+            int played = 0;
+            while (!g.isTerminal() && played < snapshots.length) {
+                snapshots[played] = owners(g);
+                hashes[played] = g.hash();
+                int count = g.legalMoves(moves);
+                assertArrayEquals(referenceLegalMoves(g), Arrays.copyOf(moves, count), "Legal moves should match the reference");
+                g.play(moves[random.nextInt(count)]);
+                assertEquals(Zobrist.hash(g), g.hash(), "The incremental hash should match a full recomputation");
+                played++;
+            }
+            while (played > 0) {
+                g.undo();
+                played--;
+                assertArrayEquals(snapshots[played], owners(g), "Undo should restore the board");
+                assertEquals(hashes[played], g.hash(), "Undo should restore the hash");
+            }
+            assertEquals(0, g.placements());
+            assertEquals(GameState.RED, g.sideToMove());
+        }
+    }
+
+    /**
+     * Tests that redo replays undone moves, captures and turns included, and
+     * that playing a different move discards what could be redone.
+     */
+    @Test
+    void testRedo() {
+        Board large = Board.hexagon(4);
+        Random random = new Random(18);
+        GameState g = new GameState(large);
+        int[] moves = new int[large.size()];
+        long[] hashes = new long[400];
+        int played = 0;
+        while (!g.isTerminal() && played < hashes.length) {
+            g.play(moves[random.nextInt(g.legalMoves(moves))]);
+            hashes[played++] = g.hash();
+        }
+        int winner = g.winner();
+
+        for (int i = played; i > 0; i--) {
+            g.undo();
+        }
+        assertEquals(played, g.redoCount());
+        for (int i = 0; i < played; i++) {
+            g.redo();
+            assertEquals(hashes[i], g.hash(), "Redo should restore move " + i);
+        }
+        assertEquals(0, g.redoCount());
+        assertEquals(winner, g.winner());
+        assertThrows(IllegalStateException.class, g::redo);
+
+        int next = g.moveAt(played - 2);
+        g.undo();
+        g.undo();
+        assertEquals(2, g.redoCount());
+        g.play(next);
+        assertEquals(1, g.redoCount(), "Replaying the next move by hand keeps the rest");
+        g.undo();
+        g.legalMoves(moves);
+        g.play(moves[0] == next ? moves[1] : moves[0]);
+        assertEquals(0, g.redoCount(), "A different move discards the redo stack");
+    }
+
+    /**
+     * Tests that the hash distinguishes the side to move after a capture.
+     */
+    @Test
+    void testHashIncludesSideToMove() {
+        state.play(cell(0, 0));   // red
+        state.play(cell(1, 0));   // blue
+        state.play(cell(-2, 0));  // red
+        state.play(cell(2, -2));  // blue
+        state.play(cell(0, 1));   // red captures and keeps the turn
+
+        GameState same = new GameState(board);
+        same.place(cell(0, 0), GameState.RED);
+        same.place(cell(-2, 0), GameState.RED);
+        same.place(cell(0, 1), GameState.RED);
+        same.place(cell(2, -2), GameState.BLUE);
+        assertEquals(same.hash(), state.hash(), "Red to move with the same stones should hash the same");
+        assertNotEquals(same.hash() ^ Zobrist.SIDE, state.hash());
+    }
+
+    /**
+     * Tests perft counts on the empty board, and that the bulk generator agrees
+     * with the flood-fill reference across the whole tree.
+     */
+    @Test
+    void testPerft() {
+        GameState g = new GameState(Board.hexagon(6));
+        assertEquals(127, Perft.perft(g, 1));
+        assertEquals(127 * 126, Perft.perft(g, 2));
+
+        assertEquals(referencePerft(state, 4), Perft.perft(state, 4), "Perft should match the reference rules");
+        assertEquals(0, state.placements(), "Perft should leave the position unchanged");
+    }
+
+    private static long referencePerft(GameState g, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (g.isTerminal()) {
+            return 0;
+        }
+        long nodes = 0;
+        for (int move : referenceLegalMoves(g)) {
+            GameState child = g.copy();
+            child.play(move);
+            nodes += referencePerft(child, depth - 1);
+        }
+        return nodes;
+    }
+
+    private static int[] owners(GameState g) {
+        int[] owners = new int[g.board().size()];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = g.owner(i);
+        }
+        return owners;
+    }
+
+    /**
+     * Reference legality: flood-fills the group a placement would join and
+     * checks it touches an enemy stone, as the original click handler did.
+     */
+    private static int[] referenceLegalMoves(GameState g) {
+        Board b = g.board();
+        int me = g.sideToMove();
+        int[] legal = new int[b.size()];
+        int count = 0;
+        for (int cell = 0; cell < b.size(); cell++) {
+            if (g.owner(cell) != GameState.NONE) {
+                continue;
+            }
+            boolean touchesSame = false;
+            for (int d = 0; d < 6; d++) {
+                int nb = b.neighbor(cell, d);
+                touchesSame |= nb >= 0 && g.owner(nb) == me;
+            }
+            boolean chainTouchesOpponent = false;
+            if (touchesSame) {
+                boolean[] chain = new boolean[b.size()];
+                java.util.ArrayDeque<Integer> line = new java.util.ArrayDeque<>();
+                chain[cell] = true;
+                line.add(cell);
+                while (!line.isEmpty()) {
+                    int current = line.poll();
+                    for (int d = 0; d < 6; d++) {
+                        int nb = b.neighbor(current, d);
+                        if (nb < 0) {
+                            continue;
+                        }
+                        if (g.owner(nb) == (me ^ 1)) {
+                            chainTouchesOpponent = true;
+                        } else if (g.owner(nb) == me && !chain[nb]) {
+                            chain[nb] = true;
+                            line.add(nb);
+                        }
+                    }
+                }
+            }
+            if (!touchesSame || chainTouchesOpponent) {
+                legal[count++] = cell;
+            }
+        }
+        return Arrays.copyOf(legal, count);
+    }
+}
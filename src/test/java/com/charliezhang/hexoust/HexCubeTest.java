@@ -0,0 +1,45 @@
+package com.charliezhang.hexoust;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the packed HexCube coordinates and their grid helpers.
+ */
+class HexCubeTest {
+
+    /**
+     * Tests that packed coordinates round-trip and agree with the HexCube operations.
+     */
+    @Test
+    void testPackedCoordinates() {
+        HexCube a = new HexCube(-3, 5, -2);
+        int packed = a.pack();
+        assertEquals(-3, HexCube.packedQ(packed));
+        assertEquals(5, HexCube.packedR(packed));
+        assertEquals(-2, HexCube.packedS(packed));
+        assertEquals(a, HexCube.unpack(packed));
+
+        HexCube b = new HexCube(4, -1, -3);
+        assertEquals(a.distance(b), HexCube.distance(packed, b.pack()));
+        for (int i = 0; i < 6; i++) {
+            assertEquals(a.neighbor(i).pack(), HexCube.neighbor(packed, i), "Packed neighbor should match HexCube.neighbor");
+        }
+        assertSame(HexCube.of(1, 2), HexCube.of(1, 2), "Cells near the origin should be shared");
+    }
+
+    /**
+     * Tests that ring and range helpers enumerate the expected number of cells.
+     */
+    @Test
+    void testRingAndRange() {
+        int origin = HexCube.pack(0, 0);
+        int[] out = new int[64];
+
+        assertEquals(18, HexCube.ring(origin, 3, out));
+        for (int i = 0; i < 18; i++) {
+            assertEquals(3, HexCube.distance(origin, out[i]), "Ring cells should be 3 away");
+        }
+        assertEquals(37, HexCube.range(origin, 3, out));
+    }
+}
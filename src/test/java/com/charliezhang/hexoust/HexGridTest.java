@@ -2,6 +2,9 @@ package com.charliezhang.hexoust;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -148,6 +151,56 @@ class HexGridTest {
         }
     }
 
+    /**
+     * Tests that hit-testing through the layout finds the cell under any point of its hexagon.
+     */
+    @Test
+    void testCellAtUsesLayout() {
+        Layout layout = new Layout(Layout.flat, new Point(25, 25), new Point(400, 400));
+        Board board = Board.hexagon(6);
+        HexGrid panel = new HexGrid(layout, board);
+
+        int cell = board.indexOf(new HexCube(2, -1, -1));
+        Point center = layout.hexToPixel(board.cube(cell));
+        assertEquals(cell, panel.cellAt(center), "The center should hit its own cell");
+        assertEquals(cell, panel.cellAt(new Point(center.x + 22, center.y)), "A point near the edge should still hit the cell");
+        assertEquals(-1, panel.cellAt(new Point(5, 5)), "A point off the board should hit nothing");
+    }
+
+    /**
+     * Tests that stones placed after the board layer is cached still appear on
+     * the next paint, and disappear again after a reset.
+     */
+    @Test
+    void testPaintDrawsStonesOverCachedBoard() {
+        Layout layout = new Layout(Layout.flat, new Point(25, 25), new Point(400, 400));
+        Board board = Board.hexagon(6);
+        HexGrid panel = new HexGrid(layout, board);
+        panel.setSize(1100, 768);
+        BufferedImage image = new BufferedImage(1100, 768, BufferedImage.TYPE_INT_RGB);
+
+        int cell = board.indexOf(0, 0);
+        Point center = layout.hexToPixel(board.cube(cell));
+        int x = (int) center.x, y = (int) center.y;
+        paint(panel, image);
+        int empty = image.getRGB(x, y);
+
+        assertTrue(panel.redStones.add(panel.getHexCenter(panel.grid.get(cell))));
+        paint(panel, image);
+        Color stone = new Color(image.getRGB(x, y));
+        assertTrue(stone.getRed() > 150 && stone.getGreen() < 80 && stone.getBlue() < 80, "A red stone should be drawn over the cached board");
+
+        panel.resetGame();
+        paint(panel, image);
+        assertEquals(empty, image.getRGB(x, y), "The cached board should show through once the stone is gone");
+    }
+
+    private static void paint(HexGrid panel, BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        panel.paintComponent(g);
+        g.dispose();
+    }
+
     /**
      * Tests the placement of the first red stone on the grid and verifies its position.
      */
@@ -240,6 +293,82 @@ class HexGridTest {
 
         //Check that confetti is active
         assertTrue(hexGrid.showConfetti, "Confetti should be showing");
-        assertFalse(hexGrid.confettiList.isEmpty(), "Confetti list should be populated");
+        assertFalse(hexGrid.confetti.isEmpty(), "Confetti should be spawned");
+    }
+
+    /**
+     * Tests that resetting the game stops a running confetti animation.
+     */
+    @Test
+    public void testResetStopsConfetti() throws Exception {
+        javax.swing.SwingUtilities.invokeAndWait(() -> {
+            hexGrid.startConfettiAnimation();
+            assertTrue(hexGrid.animations.isAnimating());
+
+            hexGrid.resetGame();
+            assertFalse(hexGrid.showConfetti, "Confetti should stop on reset");
+            assertTrue(hexGrid.confetti.isEmpty(), "Confetti should be cleared on reset");
+            assertFalse(hexGrid.animations.isAnimating(), "No animation should keep running after a reset");
+        });
+    }
+
+    /**
+     * Tests that the panel steps back and forward through the move history,
+     * with the moves played by the game worker as clicks are.
+     */
+    @Test
+    public void testUndoRedoMove() throws Exception {
+        Board board = Board.hexagon(3);
+        HexGrid panel = new HexGrid(new Layout(Layout.flat, new Point(25, 25), new Point(400, 400)), board);
+        assertFalse(panel.undoMove(), "Nothing to undo on an empty board");
+        Point blue = panel.getHexCenter(panel.grid.get(board.indexOf(1, 0)));
+
+        panel.submitMove(board.indexOf(0, 0));
+        panel.submitMove(board.indexOf(1, 0));
+        panel.awaitIdle();
+        assertEquals(2, panel.currentTurns);
+        assertTrue(panel.blueStones.contains(blue));
+
+        assertTrue(panel.undoMove());
+        panel.awaitIdle();
+        assertEquals(1, panel.currentTurns);
+        assertFalse(panel.isRedTurn, "Blue should be to move again");
+        assertFalse(panel.blueStones.contains(blue));
+
+        assertTrue(panel.redoMove());
+        panel.awaitIdle();
+        assertEquals(2, panel.currentTurns);
+        assertTrue(panel.isRedTurn);
+        assertTrue(panel.blueStones.contains(blue));
+        assertFalse(panel.redoMove(), "Nothing left to redo");
+    }
+
+    /**
+     * Tests that a click is played by the game worker and published as a
+     * snapshot, and that an invalid click shows a notice instead of a dialog.
+     */
+    @Test
+    void testMovesPlayedOffEventThread() throws Exception {
+        Board board = Board.hexagon(3);
+        HexGrid panel = new HexGrid(new Layout(Layout.flat, new Point(25, 25), new Point(400, 400)), board);
+        int cell = board.indexOf(0, 0);
+
+        panel.submitMove(cell);
+        panel.awaitIdle();
+        assertTrue(panel.redStones.contains(panel.getHexCenter(panel.grid.get(cell))));
+        assertEquals(1, panel.currentTurns);
+        assertFalse(panel.isRedTurn, "Blue should be to move");
+        assertEquals(1, panel.metrics.histogram(MoveMetrics.Phase.CAPTURE).count());
+        assertNull(panel.notice());
+
+        panel.submitMove(cell);
+        panel.awaitIdle();
+        assertEquals("Cell Placement Invalid", panel.notice());
+        assertEquals(1, panel.currentTurns, "An invalid click should not change the turn");
+
+        panel.resetGame();
+        panel.awaitIdle();
+        assertNull(panel.notice(), "A reset should clear the notice");
+        assertEquals(0, panel.redStones.size());
     }
 }
@@ -0,0 +1,128 @@
+package com.charliezhang.hexoust;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the move latency histograms and JFR events.
+ */
+class MoveMetricsTest {
+
+    /**
+     * Tests that every value falls in a bucket no more than about 3% wide, and
+     * that percentiles of a uniform spread land where they should.
+     */
+    @Test
+    void testHistogramPrecision() {
+        Random random = new Random(21);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            long top = LatencyHistogram.highestEquivalent(LatencyHistogram.index(value));
+            assertTrue(top >= value, "A bucket should cover its value");
+            assertTrue(top - value <= Math.max(1, value / 32), "Bucket too wide at " + value);
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000, histogram.max());
+        assertEquals(50_000.5, histogram.mean(), 1e-9);
+        assertEquals(50_000, histogram.percentile(0.5), 50_000 / 32.0);
+        assertEquals(99_000, histogram.percentile(0.99), 99_000 / 32.0);
+        assertEquals(100_000, histogram.percentile(1.0));
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(0.99));
+    }
+
+    /**
+     * Tests that draining the metrics while moves are being recorded loses
+     * none of them, so consecutive dumps add up to everything recorded.
+     */
+    @Test
+    void testDrainWhileRecording() throws InterruptedException {
+        MoveMetrics metrics = new MoveMetrics();
+        int threads = 4, perThread = 50_000;
+        Thread[] recorders = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            recorders[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    metrics.record(MoveMetrics.Phase.CAPTURE, i, System.nanoTime() - i);
+                    metrics.move(i, 0, 1, 1);
+                }
+            });
+            recorders[t].start();
+        }
+        MoveMetrics interval = new MoveMetrics();
+        long captures = 0, moves = 0;
+        boolean recording = true;
+        while (recording) {
+            recording = isAlive(recorders);
+            interval.reset();
+            metrics.drainTo(interval);
+            captures += interval.histogram(MoveMetrics.Phase.CAPTURE).count();
+            moves += Long.parseLong(interval.report().split(" ")[0]);
+        }
+
+        assertEquals((long) threads * perThread, captures, "Every recorded phase should be in exactly one dump");
+        assertEquals((long) threads * perThread, moves, "Every counted move should be in exactly one dump");
+        assertEquals(0, metrics.histogram(MoveMetrics.Phase.CAPTURE).count());
+    }
+
+    private static boolean isAlive(Thread[] threads) {
+        for (Thread thread : threads) {
+            if (thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tests that the CSV rows line up with the header.
+     */
+    @Test
+    void testCsvColumns() {
+        MoveMetrics metrics = new MoveMetrics();
+        metrics.record(MoveMetrics.Phase.CAPTURE, 3, System.nanoTime());
+        metrics.move(3, 0, 12, 1);
+        assertEquals(MoveMetrics.csvHeader().split(",").length, metrics.csvRow().split(",").length);
+        assertTrue(metrics.report().startsWith("1 moves, 12 neighbour reads, 1 stones scanned"));
+    }
+
+    /**
+     * Tests that phases and moves are emitted as JFR events while recording.
+     */
+    @Test
+    void testJfrEvents(@TempDir Path dir) throws Exception {
+        MoveMetrics metrics = new MoveMetrics();
+        Path file = dir.resolve("moves.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("hexoust.MovePhase");
+            recording.enable("hexoust.Move");
+            recording.start();
+            metrics.record(MoveMetrics.Phase.VALIDATION, 7, System.nanoTime() - 1000);
+            metrics.move(7, 2, 30, 4);
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent phase = events.stream().filter(e -> e.getEventType().getName().equals("hexoust.MovePhase")).findFirst().orElseThrow();
+        assertEquals("VALIDATION", phase.getString("phase"));
+        assertEquals(7, phase.getInt("cell"));
+        assertTrue(phase.getDuration("latency").toNanos() >= 1000);
+        RecordedEvent move = events.stream().filter(e -> e.getEventType().getName().equals("hexoust.Move")).findFirst().orElseThrow();
+        assertEquals(2, move.getInt("captures"));
+        assertEquals(4, move.getLong("stonesScanned"));
+    }
+}
@@ -0,0 +1,143 @@
+package com.charliezhang.hexoust;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for building and reading opening books.
+ */
+class OpeningBookTest {
+
+    private static GameState randomGame(Board board, Random random, int maxMoves) {
+        GameState state = new GameState(board);
+        int[] moves = new int[board.size()];
+        while (!state.isTerminal() && state.moveCount() < maxMoves) {
+            state.play(moves[random.nextInt(state.legalMoves(moves))]);
+        }
+        return state;
+    }
+
+    /**
+     * Tests that a book built from an archive counts every finished game once
+     * per ply, skips unfinished ones, and pools symmetric openings.
+     */
+    @Test
+    void testBuildFromArchive(@TempDir Path dir) throws IOException {
+        Board board = Board.hexagon(3);
+        Random random = new Random(25);
+        List<GameState> games = new ArrayList<>();
+        try (GameArchiveWriter writer = new GameArchiveWriter(dir.resolve("games"))) {
+            for (int i = 0; i < 60; i++) {
+                GameState game = randomGame(board, random, i % 10 == 0 ? 3 : Integer.MAX_VALUE);
+                games.add(game);
+                writer.append(game);
+            }
+        }
+        long finished = games.stream().filter(GameState::isTerminal).count();
+        assertTrue(finished < games.size());
+        OpeningBookBuilder builder = new OpeningBookBuilder(board, 4);
+        try (GameArchive archive = GameArchive.open(dir.resolve("games"))) {
+            assertEquals(finished, builder.addAll(archive), "Unfinished games are skipped");
+        }
+        Path file = dir.resolve("book.hxb");
+        assertEquals(builder.size(), builder.write(file, 1));
+
+        try (OpeningBook book = OpeningBook.open(file)) {
+            assertEquals(builder.size(), book.size());
+            GameState empty = new GameState(board);
+            List<OpeningBook.Move> first = book.moves(empty);
+            assertTrue(first.size() <= 6, "At most one first move per class of equivalent cells");
+            int total = 0;
+            int redWins = 0;
+            for (OpeningBook.Move move : first) {
+                assertTrue(empty.isLegal(move.cell()));
+                total += move.games();
+                redWins += move.wins();
+            }
+            assertEquals(finished, total);
+            assertEquals(games.stream().filter(g -> g.winner() == GameState.RED).count(), redWins);
+
+            for (GameState game : games) {
+                if (game.winner() == GameState.NONE) {
+                    continue;
+                }
+                GameState state = new GameState(board);
+                for (int ply = 0; ply < Math.min(4, game.moveCount()); ply++) {
+                    OpeningBook.Move best = book.bestMove(state);
+                    assertNotNull(best, "Every counted position is in the book");
+                    for (OpeningBook.Move move : book.moves(state)) {
+                        assertTrue(move.score() <= best.score());
+                    }
+                    state.play(game.moveAt(ply));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that moves played in too few games are left out, that a book only
+     * answers for its own board, and that the book player falls back outside it.
+     */
+    @Test
+    void testMinGamesAndFallback(@TempDir Path dir) throws IOException {
+        Board board = Board.rhombus(3);
+        Random random = new Random(26);
+        OpeningBookBuilder builder = new OpeningBookBuilder(board, 2);
+        for (int i = 0; i < 30; i++) {
+            assertTrue(builder.add(randomGame(board, random, Integer.MAX_VALUE)));
+        }
+        assertFalse(builder.add(randomGame(board, random, 1)));
+        assertFalse(builder.add(randomGame(Board.hexagon(2), random, Integer.MAX_VALUE)));
+        Path file = dir.resolve("book.hxb");
+        int written = builder.write(file, 3);
+        assertTrue(written > 0 && written < builder.size());
+
+        try (OpeningBook book = OpeningBook.open(file);
+             Player player = new BookPlayer(book, new RandomPlayer(1))) {
+            GameState state = new GameState(board);
+            for (OpeningBook.Move move : book.moves(state)) {
+                assertTrue(move.games() >= 3);
+            }
+            OpeningBook.Move best = book.bestMove(state);
+            assertEquals(best.cell(), player.chooseMove(state));
+            assertTrue(player.lastSearchSummary().startsWith("book:"));
+
+            assertFalse(book.covers(Board.hexagon(2)));
+            assertTrue(book.moves(new GameState(Board.hexagon(2))).isEmpty());
+            GameState other = new GameState(Board.hexagon(2));
+            assertTrue(other.isLegal(player.chooseMove(other)), "Positions outside the book go to the fallback");
+        }
+    }
+
+    /**
+     * Tests that games from a different board with the same number of cells
+     * are skipped rather than counted or rejected: a hexagon of radius 5 and
+     * a triangle of radius 4 both have 91 cells.
+     */
+    @Test
+    void testSkipsBoardsOfTheSameSize(@TempDir Path dir) throws IOException {
+        Board hexagon = Board.hexagon(5);
+        Board triangle = Board.triangle(4);
+        Random random = new Random(27);
+        int finished = 0;
+        try (GameArchiveWriter writer = new GameArchiveWriter(dir.resolve("games"))) {
+            for (int i = 0; i < 10; i++) {
+                GameState game = randomGame(i % 2 == 0 ? hexagon : triangle, random, Integer.MAX_VALUE);
+                writer.append(game);
+                finished += game.board() == hexagon && game.isTerminal() ? 1 : 0;
+            }
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder(hexagon, 4);
+        assertFalse(builder.add(randomGame(triangle, random, Integer.MAX_VALUE)));
+        try (GameArchive archive = GameArchive.open(dir.resolve("games"))) {
+            assertEquals(finished, builder.addAll(archive), "Only the hexagon games are counted");
+        }
+        assertEquals(finished, builder.games());
+    }
+}
@@ -0,0 +1,42 @@
+package com.charliezhang.hexoust;
+
+import org.junit.jupiter.api.Test;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the confetti particle system.
+ */
+class ParticleSystemTest {
+
+    /**
+     * Tests that particles fall under gravity and are culled once they leave the panel.
+     */
+    @Test
+    void testParticlesAreCulledOffScreen() {
+        ParticleSystem particles = new ParticleSystem(42);
+        particles.spawn(20_000, 1100, 100);
+        assertEquals(20_000, particles.size());
+
+        particles.step(1100, 768);
+        assertTrue(particles.size() > 19_000, "Almost every particle should still be on screen after one step");
+        for (int i = 0; i < 60; i++) {
+            particles.step(1100, 768);
+        }
+        assertTrue(particles.isEmpty(), "Every particle should have fallen off the bottom");
+
+        particles.spawn(200, 1100, 100);
+        BufferedImage image = new BufferedImage(1100, 768, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        particles.draw(g, 1100, 768);
+        g.dispose();
+        int coloured = 0;
+        for (int x = 0; x < 1100; x++) {
+            for (int y = 0; y < 110; y++) {
+                coloured += image.getRGB(x, y) != 0xFF000000 ? 1 : 0;
+            }
+        }
+        assertTrue(coloured > 200 * 20, "Particles should be stamped into the image");
+    }
+}
@@ -0,0 +1,122 @@
+package com.charliezhang.hexoust;
+
+import org.junit.jupiter.api.Test;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the computer players and the command-line player factory.
+ */
+class PlayerTest {
+
+    /**
+     * Tests that the MCTS player takes a capture that wins the game on the spot.
+     */
+    @Test
+    void testMctsTakesWinningCapture() {
+        Board board = Board.hexagon(2);
+        GameState state = new GameState(board);
+        state.play(board.indexOf(0, 0));   // red
+        state.play(board.indexOf(1, 0));   // blue, adjacent to red
+
+        try (MctsPlayer player = new MctsPlayer(10_000, 4000, Math.sqrt(2), 2, 3, 7)) {
+            int move = player.chooseMove(state.copy());
+            GameState after = state.copy();
+            after.play(move);
+            assertEquals(GameState.RED, after.winner(), "Red should capture the only blue stone and win");
+            assertTrue(player.lastPlayouts() >= 4000, "The search should stop at the playout limit");
+            assertTrue(player.playoutsPerSecond() > 0);
+        }
+    }
+
+    /**
+     * Tests that the alpha-beta player finds the winning capture, reports its
+     * statistics, and respects its time budget.
+     */
+    @Test
+    void testAlphaBetaTakesWinningCaptureWithinBudget() {
+        Board board = Board.hexagon(2);
+        GameState state = new GameState(board);
+        state.play(board.indexOf(0, 0));   // red
+        state.play(board.indexOf(1, 0));   // blue, adjacent to red
+
+        AlphaBetaPlayer player = new AlphaBetaPlayer(1000, 6, 1);
+        GameState after = state.copy();
+        after.play(player.chooseMove(state));
+        assertEquals(GameState.RED, after.winner(), "Red should capture the only blue stone and win");
+        assertTrue(player.lastScore() > AlphaBetaPlayer.WIN - 10, "The search should see the win");
+        assertTrue(player.lastNodes() > 0);
+        assertEquals(2, state.placements(), "The search should leave the position unchanged");
+
+        AlphaBetaPlayer timed = new AlphaBetaPlayer(50);
+        GameState opening = new GameState(Board.hexagon(6));
+        long start = System.nanoTime();
+        assertTrue(opening.isLegal(timed.chooseMove(opening)));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(millis < 500, "The search took " + millis + " ms on a 50 ms budget");
+        assertTrue(timed.lastDepth() >= 1);
+    }
+
+    /**
+     * Tests that the alpha-beta player keeps to its budget in the middle game,
+     * where most moves capture and quiescence has long capture chains to follow.
+     */
+    @Test
+    void testAlphaBetaBudgetInMiddleGame() {
+        Board board = Board.hexagon(6);
+        Random random = new Random(0);
+        GameState state = new GameState(board);
+        int[] moves = new int[board.size()];
+        while (state.stoneCount(GameState.RED) + state.stoneCount(GameState.BLUE) < 24) {
+            state.play(moves[random.nextInt(state.legalMoves(moves))]);
+        }
+        int captures = 0;
+        for (int move : state.legalMoves()) {
+            GameState after = state.copy();
+            if (after.play(move) > 0) {
+                captures++;
+            }
+        }
+        assertTrue(captures >= 10, "Only " + captures + " captures available");
+
+        AlphaBetaPlayer player = new AlphaBetaPlayer(100);
+        for (int move = 0; move < 3; move++) {
+            long start = System.nanoTime();
+            int cell = player.chooseMove(state);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(millis < 500, "The search took " + millis + " ms on a 100 ms budget");
+            assertTrue(player.lastDepth() >= 1);
+            state.play(cell);
+        }
+    }
+
+    /**
+     * Tests that a game between two computer players only plays legal moves.
+     */
+    @Test
+    void testPlayersChooseLegalMoves() {
+        GameState state = new GameState(Board.hexagon(3));
+        try (Player red = new MctsPlayer(1000, 200, Math.sqrt(2), 1, 3, 1);
+             Player blue = new AlphaBetaPlayer(20)) {
+            for (int ply = 0; ply < 20 && !state.isTerminal(); ply++) {
+                Player mover = state.sideToMove() == GameState.RED ? red : blue;
+                int move = mover.chooseMove(state.copy());
+                assertTrue(state.isLegal(move), mover.name() + " chose an illegal move");
+                state.play(move);
+            }
+        }
+    }
+
+    /**
+     * Tests parsing of command-line player specifications.
+     */
+    @Test
+    void testCreateFromSpec() {
+        assertNull(Players.create("human", 0));
+        assertEquals("random", Players.create("random", 0).name());
+        assertEquals("mcts", Players.create("MCTS:250", 0).name());
+        assertEquals("alphabeta", Players.create("alphabeta:50", 0).name());
+        assertThrows(IllegalArgumentException.class, () -> Players.create("mcts:soon", 0));
+        assertThrows(IllegalArgumentException.class, () -> Players.create("oracle", 0));
+    }
+}
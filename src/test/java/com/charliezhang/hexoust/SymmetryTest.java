@@ -0,0 +1,144 @@
+package com.charliezhang.hexoust;
+
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for board symmetries and canonical hashing.
+ */
+class SymmetryTest {
+
+    /**
+     * Tests that each shape finds the symmetries it should.
+     */
+    @Test
+    void testSymmetryCounts() {
+        for (int radius = 1; radius <= 6; radius++) {
+            assertEquals(12, Board.hexagon(radius).symmetry().size());
+            assertEquals(4, Board.rhombus(radius).symmetry().size());
+            assertEquals(6, Board.triangle(radius).symmetry().size());
+        }
+        Layout layout = new Layout(Layout.flat, new Point(25, 25), new Point(400, 400));
+        Board hexagon = Board.hexagon(2);
+        Point[] centers = new Point[hexagon.size()];
+        for (int cell = 0; cell < hexagon.size(); cell++) {
+            centers[cell] = layout.hexToPixel(hexagon.cube(cell));
+        }
+        assertEquals(1, Board.fromCenters(centers, 45).symmetry().size(), "Pixel boards have no coordinates to map");
+    }
+
+    /**
+     * Tests that every symmetry is a permutation that keeps neighbours
+     * neighbours, and that symmetry 0 is the identity.
+     */
+    @Test
+    void testPermutationsPreserveAdjacency() {
+        Board board = Board.hexagon(4);
+        Symmetry symmetry = board.symmetry();
+        for (int t = 0; t < symmetry.size(); t++) {
+            boolean[] hit = new boolean[board.size()];
+            for (int cell = 0; cell < board.size(); cell++) {
+                int image = symmetry.image(t, cell);
+                if (t == 0) {
+                    assertEquals(cell, image);
+                }
+                assertFalse(hit[image], "Two cells map to " + image);
+                hit[image] = true;
+                assertEquals(cell, symmetry.preimage(t, image));
+                assertEquals(board.degree(cell), board.degree(image));
+                for (int d = 0; d < Board.DIRECTIONS; d++) {
+                    int nb = board.neighbor(cell, d);
+                    if (nb >= 0) {
+                        assertEquals(1, board.cube(image).distance(board.cube(symmetry.image(t, nb))));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that the images of a position share its canonical hash, that the
+     * hash of an image matches the image built stone by stone, and that legal
+     * moves map onto legal moves.
+     */
+    @Test
+    void testCanonicalHash() {
+        Board board = Board.hexagon(3);
+        Symmetry symmetry = board.symmetry();
+        Random random = new Random(24);
+        int[] moves = new int[board.size()];
+        for (int game = 0; game < 30; game++) {
+            GameState state = new GameState(board);
+            while (!state.isTerminal()) {
+                long canonical = symmetry.canonicalHash(state);
+                int[] legal = state.legalMoves();
+                for (int t = 0; t < symmetry.size(); t++) {
+                    GameState image = image(state, symmetry, t);
+                    assertEquals(image.hash(), symmetry.hash(state, t));
+                    assertEquals(canonical, symmetry.canonicalHash(image));
+                    int[] mapped = new int[legal.length];
+                    for (int i = 0; i < legal.length; i++) {
+                        mapped[i] = symmetry.image(t, legal[i]);
+                    }
+                    Arrays.sort(mapped);
+                    assertArrayEquals(image.legalMoves(), mapped);
+                }
+                state.play(moves[random.nextInt(state.legalMoves(moves))]);
+            }
+        }
+    }
+
+    /**
+     * Tests that a move and its images in the symmetric positions share one
+     * canonical move, and that playing it back in the position's frame reaches
+     * a position symmetric to the one the move reaches.
+     */
+    @Test
+    void testCanonicalMove() {
+        Board board = Board.hexagon(3);
+        Symmetry symmetry = board.symmetry();
+        GameState empty = new GameState(board);
+        Set<Integer> classes = new HashSet<>();
+        for (int cell = 0; cell < board.size(); cell++) {
+            classes.add(symmetry.canonicalMove(empty, cell));
+        }
+        assertEquals(6, classes.size(), "The centre, the first ring, and the corners and sides of the next two");
+
+        Random random = new Random(25);
+        int[] moves = new int[board.size()];
+        for (int game = 0; game < 20; game++) {
+            GameState state = new GameState(board);
+            while (!state.isTerminal()) {
+                int frame = symmetry.canonical(state);
+                for (int move : state.legalMoves()) {
+                    int canonical = symmetry.canonicalMove(state, move);
+                    for (int t = 0; t < symmetry.size(); t++) {
+                        assertEquals(canonical, symmetry.canonicalMove(image(state, symmetry, t), symmetry.image(t, move)));
+                    }
+                    GameState played = state.copy();
+                    played.play(move);
+                    GameState replayed = state.copy();
+                    replayed.play(symmetry.preimage(frame, canonical));
+                    assertEquals(symmetry.canonicalHash(played), symmetry.canonicalHash(replayed));
+                }
+                state.play(moves[random.nextInt(state.legalMoves(moves))]);
+            }
+        }
+    }
+
+    private static GameState image(GameState state, Symmetry symmetry, int t) {
+        Board board = state.board();
+        long[][] bits = new long[2][(board.size() + 63) / 64];
+        for (int player = GameState.RED; player <= GameState.BLUE; player++) {
+            for (int cell = state.nextStone(player, 0); cell >= 0; cell = state.nextStone(player, cell + 1)) {
+                int image = symmetry.image(t, cell);
+                bits[player][image >>> 6] |= 1L << image;
+            }
+        }
+        return GameState.setUp(board, bits[GameState.RED], bits[GameState.BLUE], state.sideToMove());
+    }
+}
@@ -0,0 +1,86 @@
+package com.charliezhang.hexoust;
+
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the headless tournament runner.
+ */
+class TournamentTest {
+
+    /**
+     * Tests that a seeded tournament gives the same games on every run,
+     * whatever order the games finish in.
+     */
+    @Test
+    void testSeededTournamentIsDeterministic() throws InterruptedException {
+        List<String> entrants = List.of("random", "random", "random");
+        Board board = Board.hexagon(3);
+        List<Tournament.Game> first = new Tournament(entrants, board, Tournament.Mode.ROUND_ROBIN, 4, 0, 5).play();
+        List<Tournament.Game> second = new Tournament(entrants, board, Tournament.Mode.ROUND_ROBIN, 4, 0, 5).play();
+
+        assertEquals(12, first.size(), "Three pairings of four games each");
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).red, second.get(i).red);
+            assertEquals(first.get(i).winner, second.get(i).winner);
+            assertEquals(first.get(i).plies, second.get(i).plies);
+        }
+    }
+
+    /**
+     * Tests that a gauntlet only pairs the first player and alternates colours.
+     */
+    @Test
+    void testGauntletSchedule() throws InterruptedException {
+        List<Tournament.Game> games = new Tournament(List.of("random", "random", "random"), Board.hexagon(2),
+                Tournament.Mode.GAUNTLET, 3, 0, 9).play();
+
+        assertEquals(8, games.size(), "Odd game counts are rounded up so colours stay balanced");
+        int asRed = 0;
+        for (Tournament.Game g : games) {
+            assertTrue(g.red == 0 || g.blue == 0, "Every gauntlet game should include the first player");
+            asRed += g.red == 0 ? 1 : 0;
+        }
+        assertEquals(4, asRed);
+    }
+
+    /**
+     * Tests that timed engines play out a tournament with one game at a time
+     * and search single-threaded, so each gets its full thinking time.
+     */
+    @Test
+    void testTimedEnginesWithBoundedParallelism() throws InterruptedException {
+        Tournament tournament = new Tournament(List.of("mcts:5", "alphabeta:5"), Board.hexagon(2),
+                Tournament.Mode.ROUND_ROBIN, 2, 0, 3);
+        assertThrows(IllegalArgumentException.class, () -> tournament.parallel(0));
+        tournament.parallel(1);
+        List<Tournament.Game> games = tournament.play();
+
+        assertEquals(2, games.size());
+        for (Tournament.Game g : games) {
+            assertFalse(g.adjudicated, "Games without a time limit are played to the end");
+            assertNotEquals(GameState.NONE, g.winner);
+        }
+        try (Player player = Players.create("mcts:5", 1, 1)) {
+            GameState state = new GameState(Board.hexagon(2));
+            assertTrue(state.isLegal(player.chooseMove(state)));
+            assertTrue(player.lastSearchSummary().contains("1 threads"), player.lastSearchSummary());
+        }
+    }
+
+    /**
+     * Tests that the Elo fit ranks a player who wins every game above one who loses.
+     */
+    @Test
+    void testEloOrdersPlayers() {
+        List<Tournament.Game> games = List.of(
+                new Tournament.Game(0, 1, GameState.RED, 10, false),
+                new Tournament.Game(1, 0, GameState.BLUE, 10, false),
+                new Tournament.Game(0, 1, GameState.NONE, 10, true),
+                new Tournament.Game(1, 0, GameState.BLUE, 10, false));
+        double[] ratings = Tournament.elo(games, 2);
+        assertTrue(ratings[0] > ratings[1]);
+        assertEquals(0, ratings[0] + ratings[1], 1e-9, "Ratings should be anchored at a mean of zero");
+    }
+}
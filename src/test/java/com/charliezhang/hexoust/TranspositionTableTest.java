@@ -0,0 +1,96 @@
+package com.charliezhang.hexoust;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the lock-free TranspositionTable.
+ */
+class TranspositionTableTest {
+
+    /**
+     * Tests that a stored entry is read back with every field intact.
+     */
+    @Test
+    void testStoreAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(0x1234_5678_9ABC_DEF0L, 42, -17, 9, TranspositionTable.LOWER);
+
+        long entry = table.probe(0x1234_5678_9ABC_DEF0L);
+        assertNotEquals(0L, entry, "The stored position should be found");
+        assertEquals(42, TranspositionTable.move(entry));
+        assertEquals(-17, TranspositionTable.score(entry));
+        assertEquals(9, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(0L, table.probe(0x0FED_CBA9_8765_4321L), "An unknown position should miss");
+    }
+
+    /**
+     * Tests that a full bucket keeps the deeper entry when a new position arrives.
+     */
+    @Test
+    void testReplacementPrefersDepth() {
+        TranspositionTable table = new TranspositionTable(1);
+        long bucketStride = table.capacity();
+        long a = 8, b = a + bucketStride, c = a + 2 * bucketStride;
+
+        table.store(a, 1, 0, 10, TranspositionTable.EXACT);
+        table.store(b, 2, 0, 2, TranspositionTable.EXACT);
+        table.store(c, 3, 0, 5, TranspositionTable.EXACT);
+
+        assertNotEquals(0L, table.probe(a), "The deep entry should survive");
+        assertEquals(0L, table.probe(b), "The shallow entry should be replaced");
+        assertEquals(3, TranspositionTable.move(table.probe(c)));
+    }
+
+    /**
+     * Tests that re-storing a position held in the second slot of a bucket
+     * updates it there, even when the first slot is empty, rather than
+     * writing a second copy that could go stale.
+     */
+    @Test
+    void testRestoreFindsSecondSlot() {
+        TranspositionTable table = new TranspositionTable(1);
+        long bucketStride = table.capacity();
+        long a = 8, b = a + bucketStride;
+
+        table.store(a, 1, 0, 5, TranspositionTable.EXACT);
+        table.store(b, 2, 10, 3, TranspositionTable.LOWER);
+        table.erase(8);
+        table.store(b, 4, 20, 6, TranspositionTable.EXACT);
+
+        assertEquals(4, TranspositionTable.move(table.probe(b)));
+        assertEquals(20, TranspositionTable.score(table.probe(b)));
+        table.erase(9);
+        assertEquals(0L, table.probe(b), "No other copy of the position should remain");
+    }
+
+    /**
+     * Tests that concurrent writers never produce an entry that fails to match its own hash.
+     */
+    @Test
+    void testConcurrentWritersStayConsistent() throws InterruptedException {
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicInteger mismatches = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    long hash = Zobrist.mix(i % 5000);
+                    table.store(hash, i % 1000, (int) hash, id, TranspositionTable.EXACT);
+                    long entry = table.probe(hash);
+                    if (entry != 0 && TranspositionTable.score(entry) != (int) hash) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, mismatches.get(), "Every entry read should belong to the probed position");
+    }
+}